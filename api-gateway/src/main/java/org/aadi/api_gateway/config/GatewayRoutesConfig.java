@@ -35,6 +35,11 @@ public class GatewayRoutesConfig {
                                                                                 .setKeyResolver(userKeyResolver())))
                                                 .uri(orderServiceUrl))
 
+                                // ---- Order export (admin) ----
+                                .route("order-export", r -> r
+                                                .path("/admin/orders/**")
+                                                .uri(orderServiceUrl))
+
                                 // ---- DLT ADMIN Service ----
                                 .route("dlt-replay-service", r -> r
                                                 .path("/admin/dlt/**")
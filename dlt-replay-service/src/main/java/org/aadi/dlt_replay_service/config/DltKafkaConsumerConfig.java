@@ -2,6 +2,7 @@ package org.aadi.dlt_replay_service.config;
 
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.springframework.boot.kafka.autoconfigure.KafkaProperties;
 import org.springframework.context.annotation.Bean;
@@ -13,7 +14,7 @@ import java.util.Properties;
 public class DltKafkaConsumerConfig {
 
     @Bean
-    public KafkaConsumer<String, String> dltKafkaConsumer(
+    public KafkaConsumer<String, byte[]> dltKafkaConsumer(
             KafkaProperties kafkaProperties
     ) {
         Properties props = new Properties();
@@ -30,7 +31,7 @@ public class DltKafkaConsumerConfig {
         props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG,
                 StringDeserializer.class);
         props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG,
-                StringDeserializer.class);
+                ByteArrayDeserializer.class);
 
         return new KafkaConsumer<>(props);
     }
@@ -9,8 +9,8 @@ import org.springframework.kafka.core.ProducerFactory;
 public class KafkaConfig {
 
     @Bean
-    KafkaTemplate<String, Object> kafkaTemplate(
-            ProducerFactory<String, Object> pf
+    KafkaTemplate<String, byte[]> kafkaTemplate(
+            ProducerFactory<String, byte[]> pf
     ) {
         return new KafkaTemplate<>(pf);
     }
@@ -15,11 +15,11 @@ import java.util.List;
 @RequestMapping("/admin/dlt")
 public class DltReplayController {
 
-    private final KafkaConsumer<String, String> consumer;
+    private final KafkaConsumer<String, byte[]> consumer;
     private final DltReplayService replayService;
 
     public DltReplayController(
-            KafkaConsumer<String, String> consumer,
+            KafkaConsumer<String, byte[]> consumer,
             DltReplayService replayService
     ) {
         this.consumer = consumer;
@@ -37,7 +37,7 @@ public class DltReplayController {
         consumer.assign(List.of(tp));
         consumer.seek(tp, offset);
 
-        ConsumerRecords<String, String> records =
+        ConsumerRecords<String, byte[]> records =
                 consumer.poll(Duration.ofSeconds(3));
 
         if (records.isEmpty()) {
@@ -45,7 +45,7 @@ public class DltReplayController {
                     .body("No record found at offset");
         }
 
-        ConsumerRecord<String, String> record =
+        ConsumerRecord<String, byte[]> record =
                 records.iterator().next();
 
         replayService.replay(record);
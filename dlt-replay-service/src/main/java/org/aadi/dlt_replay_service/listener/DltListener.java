@@ -4,6 +4,9 @@ import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
+import java.util.HexFormat;
+
 @Component
 public class DltListener {
 
@@ -13,11 +16,23 @@ public class DltListener {
             "payment.completed.dlt",
             "notification.dlt"
     }, groupId = "dlt-replay-admin")
-    public void consume(ConsumerRecord<String, String> record) {
+    public void consume(ConsumerRecord<String, byte[]> record) {
 
         System.out.println("DLT message received:");
-        System.out.println(record.value());
+        System.out.println(describe(record.value()));
 
         // Replay is MANUAL via API, not automatic
     }
+
+    // Binary events start with a 0x00 magic byte and a 2-byte schema id; anything else is legacy JSON
+    private static String describe(byte[] value) {
+        if (value == null) {
+            return "null";
+        }
+        if (value.length >= 3 && value[0] == 0) {
+            int schemaId = (value[1] & 0xFF) << 8 | (value[2] & 0xFF);
+            return "binary event, schema " + schemaId + ", " + value.length + " bytes: " + HexFormat.of().formatHex(value);
+        }
+        return new String(value, StandardCharsets.UTF_8);
+    }
 }
@@ -10,17 +10,17 @@ import java.nio.charset.StandardCharsets;
 @Service
 public class DltReplayService {
 
-    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final KafkaTemplate<String, byte[]> kafkaTemplate;
 
-    public DltReplayService(KafkaTemplate<String, Object> kafkaTemplate) {
+    public DltReplayService(KafkaTemplate<String, byte[]> kafkaTemplate) {
         this.kafkaTemplate = kafkaTemplate;
     }
 
     /**
-     * Replay a single DLT payload to original topic
+     * Replay a single DLT payload to original topic, bytes unchanged
      */
     public void replay(
-            ConsumerRecord<String, String> record
+            ConsumerRecord<String, byte[]> record
     ) {
 
         Header originalTopicHeader =
@@ -0,0 +1,14 @@
+package org.aadi.event_codec;
+
+import java.util.UUID;
+
+/*
+ * Every event that crosses Kafka between the services. Each permitted
+ * record has a schema in events/schema-registry.json; EventCodec refuses
+ * to start if one is missing.
+ */
+public sealed interface DomainEvent
+        permits OrderCreated, PaymentCompleted, PaymentFailed, OrderPaymentTimeout {
+
+    UUID orderId();
+}
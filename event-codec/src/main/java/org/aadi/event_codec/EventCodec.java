@@ -0,0 +1,244 @@
+package org.aadi.event_codec;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.UUID;
+
+/*
+ * Wire format for DomainEvent.
+ *
+ * Binary: one magic byte (0x00, never the first byte of a JSON document),
+ * the writer's schema id as two big-endian bytes, then the schema's fields
+ * in order with no names or tags:
+ *
+ *   uuid    16 bytes, most significant half first
+ *   string  unsigned varint (UTF-8 length + 1, 0 for null), then the bytes
+ *   long    zigzag varint, 0 for null
+ *
+ * A PaymentCompleted is 19 bytes against 69 as JSON. decode() also
+ * accepts the plain JSON every service produced before, picking the
+ * record type from the topic, so a mixed-version deployment and records
+ * already sitting in the topics keep working.
+ */
+public final class EventCodec {
+
+    static final byte MAGIC = 0x00;
+
+    private static final int HEADER = 3;
+
+    private final EventSchemas schemas;
+    private final ObjectMapper json = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    public EventCodec() {
+        this(EventSchemas.load());
+    }
+
+    EventCodec(EventSchemas schemas) {
+        this.schemas = schemas;
+    }
+
+    public byte[] encode(DomainEvent event, EventFormat format) {
+        return format == EventFormat.JSON ? encodeJson(event) : encodeBinary(event);
+    }
+
+    public byte[] encodeBinary(DomainEvent event) {
+        EventSchemas.Writer writer = schemas.writer(event.getClass());
+        Output out = new Output();
+        out.writeByte(MAGIC);
+        out.writeByte(writer.schema.id() >>> 8);
+        out.writeByte(writer.schema.id());
+
+        for (int i = 0; i < writer.types.length; i++) {
+            Object value;
+            try {
+                value = writer.accessors[i].invoke(event);
+            } catch (Throwable ex) {
+                throw new IllegalStateException("Cannot read " + writer.schema.fields().get(i).name(), ex);
+            }
+            switch (writer.types[i]) {
+                case UUID -> out.writeUuid((UUID) value);
+                case STRING -> out.writeString((String) value);
+                case LONG -> out.writeLong(value == null ? 0 : (Long) value);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    public byte[] encodeJson(DomainEvent event) {
+        try {
+            return json.writeValueAsBytes(event);
+        } catch (IOException ex) {
+            throw new IllegalArgumentException("Cannot write " + event, ex);
+        }
+    }
+
+    public DomainEvent decode(String topic, byte[] data) {
+        if (data.length > 0 && data[0] == MAGIC) {
+            return decodeBinary(data);
+        }
+        Class<? extends DomainEvent> type = schemas.typeForTopic(topic);
+        if (type == null) {
+            throw new IllegalArgumentException("JSON payload on " + topic + " which has no event type");
+        }
+        try {
+            return json.readValue(data, type);
+        } catch (IOException ex) {
+            throw new IllegalArgumentException("Unreadable JSON " + type.getSimpleName() + " on " + topic, ex);
+        }
+    }
+
+    public DomainEvent decodeBinary(byte[] data) {
+        if (data.length < HEADER || data[0] != MAGIC) {
+            throw new IllegalArgumentException("Not a binary event");
+        }
+        int schemaId = (data[1] & 0xFF) << 8 | (data[2] & 0xFF);
+        EventSchemas.Reader reader = schemas.reader(schemaId);
+        if (reader == null) {
+            throw new IllegalArgumentException("Unknown event schema id " + schemaId);
+        }
+
+        Input in = new Input(data, HEADER);
+        Object[] args = new Object[reader.arity];
+        for (int i = 0; i < reader.types.length; i++) {
+            Object value = switch (reader.types[i]) {
+                case UUID -> in.readUuid();
+                case STRING -> in.readString();
+                case LONG -> in.readLong();
+            };
+            if (reader.positions[i] >= 0) {
+                args[reader.positions[i]] = value;
+            }
+        }
+        try {
+            return (DomainEvent) reader.constructor.invoke(args);
+        } catch (Throwable ex) {
+            throw new IllegalArgumentException("Cannot build " + reader.schema.name(), ex);
+        }
+    }
+
+    private static final class Output {
+
+        private byte[] buf = new byte[32];
+        private int pos;
+
+        void writeByte(int b) {
+            ensure(1);
+            buf[pos++] = (byte) b;
+        }
+
+        void writeUuid(UUID value) {
+            if (value == null) {
+                throw new IllegalArgumentException("uuid fields are not nullable");
+            }
+            writeFixed64(value.getMostSignificantBits());
+            writeFixed64(value.getLeastSignificantBits());
+        }
+
+        void writeString(String value) {
+            if (value == null) {
+                writeVarint(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(bytes.length + 1L);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buf, pos, bytes.length);
+            pos += bytes.length;
+        }
+
+        void writeLong(long value) {
+            writeVarint((value << 1) ^ (value >> 63));
+        }
+
+        private void writeFixed64(long value) {
+            ensure(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buf[pos++] = (byte) (value >>> shift);
+            }
+        }
+
+        private void writeVarint(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buf[pos++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buf[pos++] = (byte) value;
+        }
+
+        private void ensure(int n) {
+            if (pos + n > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, pos + n));
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buf, pos);
+        }
+    }
+
+    private static final class Input {
+
+        private final byte[] buf;
+        private int pos;
+
+        Input(byte[] buf, int pos) {
+            this.buf = buf;
+            this.pos = pos;
+        }
+
+        UUID readUuid() {
+            return new UUID(readFixed64(), readFixed64());
+        }
+
+        String readString() {
+            long length = readVarint();
+            if (length == 0) {
+                return null;
+            }
+            int n = Math.toIntExact(length - 1);
+            require(n);
+            String value = new String(buf, pos, n, StandardCharsets.UTF_8);
+            pos += n;
+            return value;
+        }
+
+        Long readLong() {
+            long raw = readVarint();
+            return (raw >>> 1) ^ -(raw & 1);
+        }
+
+        private long readFixed64() {
+            require(8);
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = value << 8 | (buf[pos++] & 0xFF);
+            }
+            return value;
+        }
+
+        private long readVarint() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                require(1);
+                byte b = buf[pos++];
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint");
+        }
+
+        private void require(int n) {
+            if (pos + n > buf.length) {
+                throw new IllegalArgumentException("Truncated event");
+            }
+        }
+    }
+}
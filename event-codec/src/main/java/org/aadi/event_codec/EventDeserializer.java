@@ -0,0 +1,40 @@
+package org.aadi.event_codec;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.util.Map;
+
+/*
+ * Consumer value deserializer: binary events by schema id, anything else
+ * as legacy JSON typed by topic. Failures surface as SerializationException
+ * so ErrorHandlingDeserializer can route the record to the DLT.
+ */
+public class EventDeserializer implements Deserializer<DomainEvent> {
+
+    private EventCodec codec;
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        codec = new EventCodec();
+    }
+
+    @Override
+    public DomainEvent deserialize(String topic, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        try {
+            return codec().decode(topic, data);
+        } catch (RuntimeException ex) {
+            throw new SerializationException("Cannot decode event on " + topic, ex);
+        }
+    }
+
+    private EventCodec codec() {
+        if (codec == null) {
+            codec = new EventCodec();
+        }
+        return codec;
+    }
+}
@@ -0,0 +1,10 @@
+package org.aadi.event_codec;
+
+public enum EventFormat {
+
+    // Magic byte + schema id + positional fields; see EventCodec
+    BINARY,
+
+    // Plain JSON, as every service wrote before the binary codec
+    JSON
+}
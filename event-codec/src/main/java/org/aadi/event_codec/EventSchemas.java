@@ -0,0 +1,216 @@
+package org.aadi.event_codec;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.RecordComponent;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/*
+ * The schema registry file compiled against the DomainEvent records.
+ *
+ * Writers always use the newest version of a type. Readers go by the
+ * schema id on the wire, so a record written by an older or newer
+ * service still decodes: fields the writer had but this record lacks
+ * are read and dropped, components the writer did not have come out
+ * null. Record accessors and canonical constructors are resolved once
+ * here, never per message.
+ */
+final class EventSchemas {
+
+    static final String LOCATION = "events/schema-registry.json";
+
+    private final Map<Integer, Reader> readers = new HashMap<>();
+    private final Map<Class<?>, Writer> writers = new HashMap<>();
+    private final Map<String, Class<? extends DomainEvent>> typesByTopic = new HashMap<>();
+
+    static EventSchemas load() {
+        try (InputStream in = EventSchemas.class.getClassLoader().getResourceAsStream(LOCATION)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing " + LOCATION + " on the classpath");
+            }
+            return new EventSchemas(new ObjectMapper().readValue(in, Registry.class).schemas());
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Unreadable " + LOCATION, ex);
+        }
+    }
+
+    EventSchemas(List<Schema> schemas) {
+        Map<String, Class<? extends DomainEvent>> types = new HashMap<>();
+        for (Class<?> type : DomainEvent.class.getPermittedSubclasses()) {
+            types.put(type.getSimpleName(), type.asSubclass(DomainEvent.class));
+        }
+
+        for (Schema schema : schemas) {
+            Class<? extends DomainEvent> type = types.get(schema.name());
+            if (type == null) {
+                throw new IllegalStateException("Schema " + schema.id() + " names unknown event " + schema.name());
+            }
+            if (schema.id() < 1 || schema.id() > 0xFFFF) {
+                throw new IllegalStateException("Schema id out of range: " + schema.id());
+            }
+            if (readers.put(schema.id(), new Reader(schema, type)) != null) {
+                throw new IllegalStateException("Duplicate schema id " + schema.id());
+            }
+
+            Writer current = writers.get(type);
+            if (current == null || current.schema.version() < schema.version()) {
+                writers.put(type, new Writer(schema, type));
+            }
+            if (schema.topic() != null) {
+                typesByTopic.putIfAbsent(schema.topic(), type);
+            }
+        }
+
+        for (Class<? extends DomainEvent> type : types.values()) {
+            if (!writers.containsKey(type)) {
+                throw new IllegalStateException("No schema registered for " + type.getSimpleName());
+            }
+        }
+    }
+
+    Writer writer(Class<?> type) {
+        return writers.get(type);
+    }
+
+    Reader reader(int schemaId) {
+        return readers.get(schemaId);
+    }
+
+    Class<? extends DomainEvent> typeForTopic(String topic) {
+        return typesByTopic.get(topic);
+    }
+
+    // ---- Registry file ----
+
+    record Registry(String comment, List<Schema> schemas) {
+    }
+
+    record Schema(int id, String name, int version, String topic, List<Field> fields) {
+    }
+
+    record Field(String name, FieldType type) {
+    }
+
+    enum FieldType {
+        UUID(java.util.UUID.class),
+        STRING(String.class),
+        LONG(Long.class);
+
+        final Class<?> javaType;
+
+        FieldType(Class<?> javaType) {
+            this.javaType = javaType;
+        }
+
+        // Registry file spells types in lower case, as Avro does
+        @JsonCreator
+        static FieldType of(String name) {
+            return valueOf(name.toUpperCase(Locale.ROOT));
+        }
+    }
+
+    // ---- Compiled forms ----
+
+    static final class Writer {
+
+        final Schema schema;
+        final FieldType[] types;
+        final MethodHandle[] accessors;
+
+        private Writer(Schema schema, Class<? extends DomainEvent> type) {
+            this.schema = schema;
+            this.types = new FieldType[schema.fields().size()];
+            this.accessors = new MethodHandle[types.length];
+
+            Map<String, RecordComponent> components = components(type);
+            for (int i = 0; i < types.length; i++) {
+                Field field = schema.fields().get(i);
+                RecordComponent component = components.get(field.name());
+                if (component == null) {
+                    throw new IllegalStateException("Schema " + schema.id() + " field " + field.name()
+                            + " is not a component of " + type.getSimpleName());
+                }
+                checkType(schema, field, component);
+                types[i] = field.type();
+                accessors[i] = unreflect(component);
+            }
+        }
+    }
+
+    static final class Reader {
+
+        final Schema schema;
+        final FieldType[] types;
+        // constructor argument per wire field, -1 to skip it
+        final int[] positions;
+        final int arity;
+        final MethodHandle constructor;
+
+        private Reader(Schema schema, Class<? extends DomainEvent> type) {
+            this.schema = schema;
+            this.types = new FieldType[schema.fields().size()];
+            this.positions = new int[types.length];
+
+            RecordComponent[] components = type.getRecordComponents();
+            this.arity = components.length;
+            for (int i = 0; i < types.length; i++) {
+                Field field = schema.fields().get(i);
+                types[i] = field.type();
+                positions[i] = -1;
+                for (int c = 0; c < components.length; c++) {
+                    if (components[c].getName().equals(field.name())) {
+                        checkType(schema, field, components[c]);
+                        positions[i] = c;
+                    }
+                }
+            }
+
+            Class<?>[] parameterTypes = Arrays.stream(components)
+                    .map(RecordComponent::getType)
+                    .toArray(Class<?>[]::new);
+            try {
+                var ctor = type.getDeclaredConstructor(parameterTypes);
+                ctor.setAccessible(true);
+                this.constructor = MethodHandles.lookup().unreflectConstructor(ctor)
+                        .asSpreader(Object[].class, arity);
+            } catch (ReflectiveOperationException ex) {
+                throw new IllegalStateException("No canonical constructor on " + type.getSimpleName(), ex);
+            }
+        }
+    }
+
+    private static Map<String, RecordComponent> components(Class<?> type) {
+        Map<String, RecordComponent> byName = new HashMap<>();
+        for (RecordComponent component : type.getRecordComponents()) {
+            byName.put(component.getName(), component);
+        }
+        return byName;
+    }
+
+    private static void checkType(Schema schema, Field field, RecordComponent component) {
+        if (component.getType() != field.type().javaType) {
+            throw new IllegalStateException("Schema " + schema.id() + " field " + field.name()
+                    + " is " + field.type() + " but the record has " + component.getType().getSimpleName());
+        }
+    }
+
+    private static MethodHandle unreflect(RecordComponent component) {
+        try {
+            var accessor = component.getAccessor();
+            accessor.setAccessible(true);
+            return MethodHandles.lookup().unreflect(accessor);
+        } catch (IllegalAccessException ex) {
+            throw new IllegalStateException("Cannot read " + component, ex);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package org.aadi.event_codec;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.util.Locale;
+import java.util.Map;
+
+/*
+ * Producer value serializer. DomainEvents are written in the format set by
+ * the "events.codec.format" producer property (binary unless told
+ * otherwise); byte[] values are already encoded (outbox rows, DLT replays)
+ * and pass through untouched.
+ */
+public class EventSerializer implements Serializer<Object> {
+
+    public static final String FORMAT_CONFIG = "events.codec.format";
+
+    private EventCodec codec;
+    private EventFormat format = EventFormat.BINARY;
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        Object configured = configs.get(FORMAT_CONFIG);
+        if (configured != null) {
+            format = EventFormat.valueOf(configured.toString().trim().toUpperCase(Locale.ROOT));
+        }
+        codec = new EventCodec();
+    }
+
+    @Override
+    public byte[] serialize(String topic, Object data) {
+        if (data == null || data instanceof byte[]) {
+            return (byte[]) data;
+        }
+        if (data instanceof DomainEvent event) {
+            return codec().encode(event, format);
+        }
+        throw new SerializationException("Not an event: " + data.getClass().getName() + " for " + topic);
+    }
+
+    private EventCodec codec() {
+        if (codec == null) {
+            codec = new EventCodec();
+        }
+        return codec;
+    }
+}
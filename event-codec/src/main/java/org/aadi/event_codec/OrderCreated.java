@@ -0,0 +1,6 @@
+package org.aadi.event_codec;
+
+import java.util.UUID;
+
+public record OrderCreated(UUID orderId, String customerId) implements DomainEvent {
+}
@@ -0,0 +1,6 @@
+package org.aadi.event_codec;
+
+import java.util.UUID;
+
+public record OrderPaymentTimeout(UUID orderId, String reason) implements DomainEvent {
+}
@@ -0,0 +1,14 @@
+package org.aadi.event_codec;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.UUID;
+
+public record PaymentFailed(UUID orderId) implements DomainEvent {
+
+    // JSON form keeps the legacy {"status":"FAILED"} field for older consumers
+    @JsonProperty("status")
+    String status() {
+        return "FAILED";
+    }
+}
@@ -0,0 +1,86 @@
+package org.aadi.event_codec;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Encode and decode cost per event, binary against the JSON every service
+ * wrote before. Run from event-codec with
+ *
+ *   mvn -Pbenchmark test-compile exec:exec
+ *
+ * Sizes are printed once per trial; they do not vary with the run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventCodecBenchmark {
+
+    @Param({"OrderCreated", "PaymentCompleted", "OrderPaymentTimeout"})
+    public String type;
+
+    private final EventCodec codec = new EventCodec();
+
+    private DomainEvent event;
+    private String topic;
+    private byte[] binary;
+    private byte[] json;
+
+    @Setup
+    public void setUp() {
+        UUID orderId = UUID.randomUUID();
+        switch (type) {
+            case "OrderCreated" -> {
+                event = new OrderCreated(orderId, UUID.randomUUID().toString());
+                topic = "order.created";
+            }
+            case "PaymentCompleted" -> {
+                event = new PaymentCompleted(orderId);
+                topic = "payment.completed";
+            }
+            case "OrderPaymentTimeout" -> {
+                event = new OrderPaymentTimeout(orderId, "PAYMENT_TIMEOUT");
+                topic = "order.payment.timeout";
+            }
+            default -> throw new IllegalArgumentException(type);
+        }
+        binary = codec.encodeBinary(event);
+        json = codec.encodeJson(event);
+        System.out.printf("%n%s: %d bytes binary, %d bytes JSON%n", type, binary.length, json.length);
+    }
+
+    @Benchmark
+    public byte[] encodeBinary() {
+        return codec.encodeBinary(event);
+    }
+
+    @Benchmark
+    public byte[] encodeJson() {
+        return codec.encodeJson(event);
+    }
+
+    @Benchmark
+    public DomainEvent decodeBinary() {
+        return codec.decode(topic, binary);
+    }
+
+    @Benchmark
+    public DomainEvent decodeJson() {
+        return codec.decode(topic, json);
+    }
+}
@@ -0,0 +1,213 @@
+package org.aadi.event_codec;
+
+import org.aadi.event_codec.EventSchemas.Field;
+import org.aadi.event_codec.EventSchemas.FieldType;
+import org.aadi.event_codec.EventSchemas.Schema;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EventCodecTest {
+
+    private static final UUID ORDER_ID = UUID.fromString("01890a5d-ac96-774b-bcce-b302099a8057");
+
+    private static final List<DomainEvent> SAMPLES = List.of(
+            new OrderCreated(ORDER_ID, "customer-42"),
+            new PaymentCompleted(ORDER_ID),
+            new PaymentFailed(ORDER_ID),
+            new OrderPaymentTimeout(ORDER_ID, "PAYMENT_TIMEOUT"));
+
+    private final EventCodec codec = new EventCodec();
+
+    @Test
+    void everySchemaSurvivesBinaryRoundTrip() {
+        assertThat(SAMPLES).<Class<?>>extracting(DomainEvent::getClass)
+                .containsExactlyInAnyOrder(DomainEvent.class.getPermittedSubclasses());
+
+        for (DomainEvent event : SAMPLES) {
+            byte[] bytes = codec.encodeBinary(event);
+
+            assertThat(bytes[0]).isEqualTo(EventCodec.MAGIC);
+            assertThat(codec.decode("any.topic", bytes)).isEqualTo(event);
+        }
+    }
+
+    @Test
+    void binaryIsSmallerThanJson() {
+        assertThat(codec.encodeBinary(new PaymentCompleted(ORDER_ID))).hasSize(19);
+        assertThat(codec.encodeBinary(new OrderCreated(ORDER_ID, "customer-42"))).hasSize(31);
+
+        for (DomainEvent event : SAMPLES) {
+            assertThat(codec.encodeBinary(event).length).isLessThan(codec.encodeJson(event).length);
+        }
+    }
+
+    @Test
+    void nullStringsSurviveRoundTrip() {
+        OrderPaymentTimeout event = new OrderPaymentTimeout(ORDER_ID, null);
+
+        assertThat(codec.decodeBinary(codec.encodeBinary(event))).isEqualTo(event);
+    }
+
+    @Test
+    void newerReaderReadsOldWriter() {
+        EventCodec oldWriter = new EventCodec(new EventSchemas(List.of(
+                schema(1, "OrderCreated", 1, "order.created", "orderId", "customerId"),
+                schema(2, "PaymentCompleted", 1, "payment.completed", "orderId"),
+                schema(3, "PaymentFailed", 1, "payment.failed", "orderId"),
+                schema(4, "OrderPaymentTimeout", 1, "order.payment.timeout", "orderId"))));
+        EventCodec newReader = new EventCodec(new EventSchemas(List.of(
+                schema(1, "OrderCreated", 1, "order.created", "orderId", "customerId"),
+                schema(2, "PaymentCompleted", 1, "payment.completed", "orderId"),
+                schema(3, "PaymentFailed", 1, "payment.failed", "orderId"),
+                schema(4, "OrderPaymentTimeout", 1, "order.payment.timeout", "orderId"),
+                schema(5, "OrderPaymentTimeout", 2, "order.payment.timeout", "orderId", "reason"))));
+
+        byte[] old = oldWriter.encodeBinary(new OrderPaymentTimeout(ORDER_ID, "PAYMENT_TIMEOUT"));
+
+        // The field the old writer did not have comes out null
+        assertThat(newReader.decodeBinary(old)).isEqualTo(new OrderPaymentTimeout(ORDER_ID, null));
+
+        // The newer writer uses the newest version, which the old reader does not know
+        byte[] current = newReader.encodeBinary(new OrderPaymentTimeout(ORDER_ID, "PAYMENT_TIMEOUT"));
+        assertThat(current[2]).isEqualTo((byte) 5);
+        assertThatThrownBy(() -> oldWriter.decodeBinary(current))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Unknown event schema id 5");
+    }
+
+    @Test
+    void readerSkipsFieldsDroppedFromTheRecord() {
+        EventCodec reader = new EventCodec(new EventSchemas(List.of(
+                schema(1, "OrderCreated", 1, "order.created", "orderId", "customerId"),
+                schema(2, "PaymentCompleted", 2, "payment.completed", "orderId"),
+                schema(3, "PaymentFailed", 1, "payment.failed", "orderId"),
+                schema(4, "OrderPaymentTimeout", 1, "order.payment.timeout", "orderId", "reason"),
+                new Schema(6, "PaymentCompleted", 1, "payment.completed", List.of(
+                        new Field("orderId", FieldType.UUID),
+                        new Field("amountMinor", FieldType.LONG),
+                        new Field("currency", FieldType.STRING))))));
+
+        // As a writer still on the version that had amountMinor and currency would lay it out
+        byte[] header = {EventCodec.MAGIC, 0, 6};
+        byte[] orderId = codec.encodeBinary(new PaymentCompleted(ORDER_ID));
+        byte[] amount = {(byte) 0xD0, 0x0F}; // zigzag 1000
+        byte[] currency = {4, 'E', 'U', 'R'};
+
+        byte[] data = concat(header, Arrays.copyOfRange(orderId, 3, orderId.length), amount, currency);
+
+        assertThat(reader.decodeBinary(data)).isEqualTo(new PaymentCompleted(ORDER_ID));
+    }
+
+    @Test
+    void unknownSchemaIdIsRejected() {
+        byte[] data = {EventCodec.MAGIC, 0x7F, 0x7F};
+
+        assertThatThrownBy(() -> codec.decode("payment.completed", data))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Unknown event schema id " + 0x7F7F);
+    }
+
+    @Test
+    void truncatedEventIsRejected() {
+        byte[] bytes = codec.encodeBinary(new PaymentCompleted(ORDER_ID));
+
+        assertThatThrownBy(() -> codec.decodeBinary(Arrays.copyOf(bytes, bytes.length - 1)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Truncated");
+    }
+
+    @Test
+    void jsonIsTypedByTopic() {
+        byte[] json = ("{\"orderId\":\"" + ORDER_ID + "\"}").getBytes(StandardCharsets.UTF_8);
+
+        assertThat(codec.decode("payment.completed", json)).isEqualTo(new PaymentCompleted(ORDER_ID));
+        assertThat(codec.decode("payment.failed", json)).isEqualTo(new PaymentFailed(ORDER_ID));
+        assertThatThrownBy(() -> codec.decode("inventory.reserved", json))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("no event type");
+    }
+
+    @Test
+    void everySchemaSurvivesJsonRoundTrip() {
+        Map<Class<?>, String> topics = Map.of(
+                OrderCreated.class, "order.created",
+                PaymentCompleted.class, "payment.completed",
+                PaymentFailed.class, "payment.failed",
+                OrderPaymentTimeout.class, "order.payment.timeout");
+
+        for (DomainEvent event : SAMPLES) {
+            byte[] bytes = codec.encode(event, EventFormat.JSON);
+
+            assertThat(bytes[0]).isEqualTo((byte) '{');
+            assertThat(codec.decode(topics.get(event.getClass()), bytes)).isEqualTo(event);
+        }
+    }
+
+    @Test
+    void legacyJsonWithExtraPropertiesDecodes() {
+        byte[] json = ("{\"orderId\":\"" + ORDER_ID + "\",\"customerId\":\"c\",\"status\":\"CREATED\"}")
+                .getBytes(StandardCharsets.UTF_8);
+
+        assertThat(codec.decode("order.created", json)).isEqualTo(new OrderCreated(ORDER_ID, "c"));
+    }
+
+    @Test
+    void serializerWritesConfiguredFormatAndPassesBytesThrough() {
+        PaymentFailed event = new PaymentFailed(ORDER_ID);
+        byte[] encoded = {1, 2, 3};
+
+        try (EventSerializer json = new EventSerializer(); EventDeserializer reader = new EventDeserializer()) {
+            json.configure(Map.of(EventSerializer.FORMAT_CONFIG, "json"), false);
+            reader.configure(Map.of(), false);
+
+            assertThat(json.serialize("payment.failed", encoded)).isSameAs(encoded);
+            assertThat(reader.deserialize("payment.failed", json.serialize("payment.failed", event))).isEqualTo(event);
+        }
+    }
+
+    @Test
+    void registryMustCoverEveryEvent() {
+        assertThatThrownBy(() -> new EventSchemas(List.of(
+                schema(1, "OrderCreated", 1, "order.created", "orderId", "customerId"))))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("No schema registered for");
+    }
+
+    @Test
+    void registryRejectsReusedIds() {
+        assertThatThrownBy(() -> new EventSchemas(List.of(
+                schema(1, "OrderCreated", 1, "order.created", "orderId", "customerId"),
+                schema(1, "PaymentCompleted", 1, "payment.completed", "orderId"))))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("Duplicate schema id 1");
+    }
+
+    // Field types follow the record components: orderId uuid, everything else string
+    private static Schema schema(int id, String name, int version, String topic, String... fields) {
+        return new Schema(id, name, version, topic, Arrays.stream(fields)
+                .map(field -> new Field(field, field.equals("orderId") ? FieldType.UUID : FieldType.STRING))
+                .toList());
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        int length = 0;
+        for (byte[] part : parts) {
+            length += part.length;
+        }
+        byte[] all = new byte[length];
+        int pos = 0;
+        for (byte[] part : parts) {
+            System.arraycopy(part, 0, all, pos, part.length);
+            pos += part.length;
+        }
+        return all;
+    }
+}
@@ -1,8 +1,10 @@
 package org.aadi.notification_service.config;
 
 import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
@@ -21,7 +23,8 @@ public class KafkaConsumerConfig {
     ConcurrentKafkaListenerContainerFactory<Object, Object>
     kafkaListenerContainerFactory(
             ConsumerFactory<Object, Object> consumerFactory,
-            KafkaTemplate<Object, Object> kafkaTemplate
+            KafkaTemplate<Object, Object> kafkaTemplate,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads
     ) {
 
         ConcurrentKafkaListenerContainerFactory<Object, Object> factory =
@@ -29,6 +32,13 @@ public class KafkaConsumerConfig {
 
         factory.setConsumerFactory(consumerFactory);
 
+        // This factory bypasses Boot's configurer, so apply spring.threads.virtual.enabled here
+        if (virtualThreads) {
+            SimpleAsyncTaskExecutor listenerExecutor = new SimpleAsyncTaskExecutor("kafka-listener-");
+            listenerExecutor.setVirtualThreads(true);
+            factory.getContainerProperties().setListenerTaskExecutor(listenerExecutor);
+        }
+
         // ✅ Manual acknowledgment (as you already use)
         factory.getContainerProperties()
                 .setAckMode(ContainerProperties.AckMode.MANUAL);
@@ -1,5 +1,9 @@
 package org.aadi.notification_service.consumer;
 
+import org.aadi.event_codec.DomainEvent;
+import org.aadi.event_codec.OrderPaymentTimeout;
+import org.aadi.event_codec.PaymentCompleted;
+import org.aadi.event_codec.PaymentFailed;
 import org.aadi.notification_service.service.NotificationSender;
 import org.aadi.notification_service.domain.NotificationLog;
 import org.aadi.notification_service.domain.NotificationType;
@@ -8,7 +12,6 @@ import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Map;
 import java.util.UUID;
 
 @Component
@@ -27,28 +30,27 @@ public class PaymentEventConsumer {
     @KafkaListener(topics = { "payment.completed", "payment.failed",
             "order.payment.timeout" }, groupId = "notification-microservice")
     @Transactional
-    public void consume(Map<String, Object> event) {
+    public void consume(DomainEvent event) {
         System.out.println("Notification for order " + event);
 
-        UUID orderId = UUID.fromString(event.get("orderId").toString());
-
-        String status = event.getOrDefault("status", "TIMEOUT").toString();
+        UUID orderId = event.orderId();
 
         NotificationType type;
 
-        switch (status) {
-            case "SUCCESS" -> {
+        switch (event) {
+            case PaymentCompleted completed -> {
                 type = NotificationType.PAYMENT_SUCCESS;
                 sender.sendSuccess(orderId);
             }
-            case "FAILED" -> {
+            case PaymentFailed failed -> {
                 type = NotificationType.PAYMENT_FAILED;
                 sender.sendFailure(orderId);
             }
-            default -> {
+            case OrderPaymentTimeout timeout -> {
                 type = NotificationType.PAYMENT_TIMEOUT;
                 sender.sendPaymentTimeout(orderId);
             }
+            default -> throw new IllegalArgumentException("No notification for " + event);
         }
 
         if (repo.existsByOrderIdAndType(orderId, type)) {
@@ -28,7 +28,7 @@ public class NotificationLog {
     private Instant sentAt;
 
     public NotificationLog(UUID orderId, NotificationType type) {
-        this.id = UUID.randomUUID();
+        this.id = UuidV7.next();
         this.orderId=orderId;
         this.type = type;
         this.sentAt = Instant.now();
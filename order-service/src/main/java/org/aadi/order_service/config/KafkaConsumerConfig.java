@@ -1,8 +1,10 @@
 package org.aadi.order_service.config;
 
 import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
@@ -21,18 +23,62 @@ public class KafkaConsumerConfig {
     ConcurrentKafkaListenerContainerFactory<Object, Object>
     kafkaListenerContainerFactory(
             ConsumerFactory<Object, Object> consumerFactory,
-            KafkaTemplate<Object, Object> kafkaTemplate
+            KafkaTemplate<Object, Object> kafkaTemplate,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads
     ) {
 
         ConcurrentKafkaListenerContainerFactory<Object, Object> factory =
-                new ConcurrentKafkaListenerContainerFactory<>();
-
-        factory.setConsumerFactory(consumerFactory);
+                containerFactory(consumerFactory, kafkaTemplate, virtualThreads);
 
         // Manual acknowledgment
         factory.getContainerProperties()
                 .setAckMode(ContainerProperties.AckMode.MANUAL);
 
+        return factory;
+    }
+
+    /*
+     * Whole poll batches per listener call, offsets committed once the call
+     * returns. A listener throws BatchListenerFailedException to name the
+     * poison record: the records before it are committed, it alone goes to
+     * the DLT after retries, and the rest are redelivered.
+     */
+    @Bean
+    ConcurrentKafkaListenerContainerFactory<Object, Object>
+    batchKafkaListenerContainerFactory(
+            ConsumerFactory<Object, Object> consumerFactory,
+            KafkaTemplate<Object, Object> kafkaTemplate,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads
+    ) {
+
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory =
+                containerFactory(consumerFactory, kafkaTemplate, virtualThreads);
+
+        factory.setBatchListener(true);
+        factory.getContainerProperties()
+                .setAckMode(ContainerProperties.AckMode.BATCH);
+
+        return factory;
+    }
+
+    private ConcurrentKafkaListenerContainerFactory<Object, Object> containerFactory(
+            ConsumerFactory<Object, Object> consumerFactory,
+            KafkaTemplate<Object, Object> kafkaTemplate,
+            boolean virtualThreads
+    ) {
+
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+
+        factory.setConsumerFactory(consumerFactory);
+
+        // This factory bypasses Boot's configurer, so apply spring.threads.virtual.enabled here
+        if (virtualThreads) {
+            SimpleAsyncTaskExecutor listenerExecutor = new SimpleAsyncTaskExecutor("kafka-listener-");
+            listenerExecutor.setVirtualThreads(true);
+            factory.getContainerProperties().setListenerTaskExecutor(listenerExecutor);
+        }
+
         //Dead Letter Publishing with ORIGINAL TOPIC HEADER
         DeadLetterPublishingRecoverer recoverer =
                 new DeadLetterPublishingRecoverer(
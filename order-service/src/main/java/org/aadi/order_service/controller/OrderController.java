@@ -1,6 +1,8 @@
 package org.aadi.order_service.controller;
 
+import org.aadi.order_service.repo.OrderHistoryCursor;
 import org.aadi.order_service.service.OrderService;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -8,7 +10,9 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.util.List;
 import java.util.UUID;
 
 @RestController
@@ -16,9 +20,16 @@ import java.util.UUID;
 public class OrderController {
 
     private final OrderService service;
+    private final int maxBatchSize;
 
-    public OrderController(OrderService service) {
+    private final int maxHistoryPageSize;
+
+    public OrderController(OrderService service,
+                           @Value("${order.batch.max-size:500}") int maxBatchSize,
+                           @Value("${order.history.max-page-size:100}") int maxHistoryPageSize) {
         this.service = service;
+        this.maxBatchSize = maxBatchSize;
+        this.maxHistoryPageSize = maxHistoryPageSize;
     }
 
     @PostMapping
@@ -28,6 +39,27 @@ public class OrderController {
         return new ResponseEntity<>(service.createOrder(userId, key), HttpStatus.OK);
     }
 
+    // Many orders in one round-trip; each entry is idempotent on its own key
+    @PostMapping("/batch")
+    public ResponseEntity<List<BatchOrderResult>> createOrders(
+            @RequestBody BatchOrderRequest request,
+            @RequestHeader("X-User-Id") String userId) {
+
+        List<String> keys = request.orders() == null ? List.of()
+                : request.orders().stream().map(BatchOrderEntry::idempotencyKey).toList();
+
+        if (keys.isEmpty() || keys.size() > maxBatchSize) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "A batch must contain between 1 and " + maxBatchSize + " orders");
+        }
+        if (keys.stream().anyMatch(key -> key == null || key.isBlank())) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Every order in a batch needs an idempotencyKey");
+        }
+
+        return ResponseEntity.ok(service.createOrders(userId, keys));
+    }
+
     @GetMapping
     public ResponseEntity<Page<OrderResponse>> getOrders(
             @RequestParam(defaultValue = "0") int page,
@@ -40,6 +72,42 @@ public class OrderController {
         return ResponseEntity.ok(orders);
     }
 
+    // Cursor-paged history from the read model: same latency at any depth, no count query
+    @GetMapping("/history")
+    public ResponseEntity<OrderHistoryPage> getOrderHistory(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "20") int size,
+            Authentication authentication) {
+
+        if (size < 1 || size > maxHistoryPageSize) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "size must be between 1 and " + maxHistoryPageSize);
+        }
+
+        OrderHistoryCursor cursor;
+        try {
+            cursor = after == null ? null : OrderHistoryCursor.decode(after);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid after cursor");
+        }
+
+        return ResponseEntity.ok(service.getOrderHistory(authentication.getName(), cursor, size));
+    }
+
+    public record BatchOrderRequest(List<BatchOrderEntry> orders) {
+    }
+
+    public record BatchOrderEntry(String idempotencyKey) {
+    }
+
+    // created is false when the key already had an order (or repeats earlier in the batch)
+    public record BatchOrderResult(String idempotencyKey, UUID orderId, boolean created) {
+    }
+
+    // next is null on the last page; pass it back as ?after= for the following one
+    public record OrderHistoryPage(List<OrderResponse> orders, String next) {
+    }
+
     // Response DTO to avoid exposing internal domain
     public static class OrderResponse {
         private UUID id;
@@ -0,0 +1,89 @@
+package org.aadi.order_service.controller;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.aadi.order_service.domain.OrderStatus;
+import org.aadi.order_service.service.OrderExporter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Admin only (SecurityConfig): the whole order table, streamed in one response
+@RestController
+@RequestMapping("/admin/orders")
+public class OrderExportController {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderExportController.class);
+
+    // Chunked-encoding trailer sent after the last row; absent unless the export finished
+    static final String ROWS_TRAILER = "X-Export-Rows";
+
+    private final OrderExporter exporter;
+
+    public OrderExportController(OrderExporter exporter) {
+        this.exporter = exporter;
+    }
+
+    /*
+     * GET /admin/orders/export?format=csv&status=PAID&from=2026-01-01T00:00:00Z&to=2026-02-01T00:00:00Z
+     *
+     * format is ndjson (default) or csv; every filter is optional. Written
+     * straight to the servlet output stream on the request thread, so there
+     * is no async timeout however long the export runs.
+     *
+     * The 200 goes out with the first rows, so a failure later on cannot
+     * change it. The response is then aborted instead of ended: the
+     * connection is dropped without the final chunk, which clients report
+     * as a truncated transfer rather than a short file. A finished export
+     * ends with the X-Export-Rows trailer, for clients that read trailers.
+     */
+    @GetMapping("/export")
+    public void export(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) OrderStatus status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+            HttpServletResponse response) throws IOException {
+
+        OrderExporter.Format exportFormat;
+        try {
+            exportFormat = OrderExporter.Format.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "format must be ndjson or csv");
+        }
+        if (from != null && to != null && !from.isBefore(to)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "from must be before to");
+        }
+
+        response.setContentType(exportFormat.contentType + ";charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"orders." + exportFormat.extension + "\"");
+        response.setHeader(HttpHeaders.TRAILER, ROWS_TRAILER);
+
+        AtomicLong rows = new AtomicLong(-1);
+        response.setTrailerFields(() -> rows.get() < 0 ? Map.of() : Map.of(ROWS_TRAILER, Long.toString(rows.get())));
+
+        try {
+            rows.set(exporter.export(exportFormat, status, from, to, response.getOutputStream()));
+        } catch (RuntimeException ex) {
+            // Thrown out of a committed response, this makes the servlet container close the
+            // connection at once instead of completing it, so the client sees the export was cut short
+            if (response.isCommitted()) {
+                log.error("Order export failed after the response was committed; aborting it", ex);
+            }
+            throw ex;
+        }
+    }
+}
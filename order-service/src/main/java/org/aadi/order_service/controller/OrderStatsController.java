@@ -0,0 +1,49 @@
+package org.aadi.order_service.controller;
+
+import org.aadi.order_service.domain.OrderStatus;
+import org.aadi.order_service.stats.OrderStats;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Map;
+
+// Dashboard numbers from memory: no query against orders, whatever its size
+@RestController
+@RequestMapping("/admin/orders")
+public class OrderStatsController {
+
+    private final OrderStats stats;
+
+    public OrderStatsController(OrderStats stats) {
+        this.stats = stats;
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<OrderStatsResponse> getStats(@RequestParam(defaultValue = "15") int minutes) {
+
+        if (minutes < 1 || minutes > OrderStats.WINDOW_MINUTES) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "minutes must be between 1 and " + OrderStats.WINDOW_MINUTES);
+        }
+
+        return ResponseEntity.ok(new OrderStatsResponse(
+                stats.counts(),
+                minutes,
+                stats.recent(minutes),
+                stats.perMinute(minutes)
+        ));
+    }
+
+    // byStatus is cluster-wide; recent and perMinute (oldest first) are this replica's
+    public record OrderStatsResponse(
+            Map<OrderStatus, Long> byStatus,
+            int minutes,
+            Map<OrderStats.Activity, Long> recent,
+            Map<OrderStats.Activity, long[]> perMinute) {
+    }
+}
@@ -2,18 +2,23 @@ package org.aadi.order_service.domain;
 
 
 import jakarta.persistence.*;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.Setter;
+import org.springframework.data.domain.Persistable;
 
 
 import java.time.Instant;
 import java.util.UUID;
 
 @Entity
-@Table(name="orders",uniqueConstraints = @UniqueConstraint(columnNames = "idempotency_key"))
+// Range-partitioned by month on created_at (schema.sql); idempotency keys are unique via OrderIdempotencyKey
+@Table(name="orders",
+        indexes = @Index(name = "idx_orders_status_created_id", columnList = "status, created_at, id"))
 @Data
 @AllArgsConstructor
-public class Order {
+public class Order implements Persistable<UUID> {
 
     @Id
     private UUID id;
@@ -24,32 +29,57 @@ public class Order {
     @Column(nullable = false)
     private String idempotencyKey;
 
+    // Only changed through OrderTransition, never set directly
     @Enumerated(EnumType.STRING)
+    @Setter(AccessLevel.NONE)
     private OrderStatus status;
 
     @Column(nullable = false,updatable = false)
     private Instant createdAt;
 
+    // Ids are assigned up front, so tell save() to persist rather than merge (no SELECT per insert)
+    private transient boolean persisted;
+
     protected Order() {}
 
+    @Override
+    public boolean isNew() {
+        return !persisted;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markPersisted() {
+        this.persisted = true;
+    }
+
     public void markPaymentPending() {
-        this.status = OrderStatus.PAYMENT_PENDING;
+        apply(OrderTransition.REQUEST_PAYMENT);
     }
 
     public void markPaid() {
-        this.status = OrderStatus.PAID;
+        apply(OrderTransition.PAY);
     }
 
     public void markPaymentFailed() {
-        this.status = OrderStatus.PAYMENT_FAILED;
+        apply(OrderTransition.FAIL_PAYMENT);
     }
 
     public void markPaymentTimeout() {
-        this.status = OrderStatus.PAYMENT_TIMEOUT;
+        apply(OrderTransition.TIME_OUT);
     }
 
     public void cancel() {
-        this.status = OrderStatus.CANCELLED;
+        apply(OrderTransition.CANCEL);
+    }
+
+    // In-memory counterpart of OrderStateMachine, for orders not yet persisted
+    private void apply(OrderTransition transition) {
+        if (!transition.allowedFrom(status)) {
+            throw new IllegalStateException(
+                    "Order " + id + " cannot " + transition + " from " + status);
+        }
+        this.status = transition.target();
     }
 
     public Order(UUID id, String customerId, String idemKey) {
@@ -0,0 +1,40 @@
+package org.aadi.order_service.domain;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import org.hibernate.annotations.Immutable;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/*
+ * Read model for customer order history, one row per order. Written only
+ * by the orders trigger installed by OrderHistoryProjection; the
+ * application never inserts or updates it.
+ */
+@Entity
+@Immutable
+@Table(name = "order_history",
+        indexes = @Index(name = "idx_order_history_customer_created_id", columnList = "customer_id, created_at desc, order_id"))
+@Getter
+public class OrderHistory {
+
+    @Id
+    @Column(name = "order_id")
+    private UUID orderId;
+
+    @Column(nullable = false)
+    private String customerId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private OrderStatus status;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    @Column(nullable = false)
+    private Instant updatedAt;
+
+    protected OrderHistory() {}
+}
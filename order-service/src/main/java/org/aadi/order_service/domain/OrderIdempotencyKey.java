@@ -0,0 +1,33 @@
+package org.aadi.order_service.domain;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import org.hibernate.annotations.Immutable;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/*
+ * Unique idempotency keys for the partitioned orders table, which cannot
+ * carry a unique index without created_at. Rows are written only by the
+ * orders_claim_idempotency_key trigger (schema.sql) in the same statement
+ * as the order, so a duplicate key still fails the order insert.
+ */
+@Entity
+@Immutable
+@Table(name = "order_idempotency_keys")
+@Getter
+public class OrderIdempotencyKey {
+
+    @Id
+    private String idempotencyKey;
+
+    @Column(nullable = false)
+    private UUID orderId;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    protected OrderIdempotencyKey() {
+    }
+}
@@ -0,0 +1,78 @@
+package org.aadi.order_service.domain;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.aadi.order_service.domain.OrderStatus.*;
+
+/*
+ * The order state machine as a table: each transition names its target
+ * status and the only statuses it may start from. Everything else is
+ * derived once at class load (source sets, their names for native SQL,
+ * and the status -> allowed targets map), so checking or executing a
+ * transition never builds anything.
+ *
+ * Terminal statuses (PAID, PAYMENT_FAILED, PAYMENT_TIMEOUT, CANCELLED)
+ * have no outgoing transitions: a late payment result cannot revive a
+ * timed-out or cancelled order. CREATED stays a valid source for the
+ * payment results so orders created before PAYMENT_PENDING was set on
+ * insert still complete, and for TIME_OUT so those that never do are
+ * expired by the reconciliation sweep like any other.
+ */
+public enum OrderTransition {
+
+    REQUEST_PAYMENT(PAYMENT_PENDING, CREATED),
+    PAY(PAID, CREATED, PAYMENT_PENDING),
+    FAIL_PAYMENT(PAYMENT_FAILED, CREATED, PAYMENT_PENDING),
+    TIME_OUT(PAYMENT_TIMEOUT, CREATED, PAYMENT_PENDING),
+    CANCEL(CANCELLED, CREATED, PAYMENT_PENDING);
+
+    private static final Map<OrderStatus, Set<OrderStatus>> TARGETS = new EnumMap<>(OrderStatus.class);
+
+    static {
+        for (OrderStatus status : OrderStatus.values()) {
+            TARGETS.put(status, EnumSet.noneOf(OrderStatus.class));
+        }
+        for (OrderTransition transition : values()) {
+            for (OrderStatus from : transition.sources) {
+                TARGETS.get(from).add(transition.target);
+            }
+        }
+        TARGETS.replaceAll((status, targets) -> Collections.unmodifiableSet(targets));
+    }
+
+    private final OrderStatus target;
+    private final Set<OrderStatus> sources;
+    private final List<String> sourceNames;
+
+    OrderTransition(OrderStatus target, OrderStatus first, OrderStatus... rest) {
+        this.target = target;
+        this.sources = Collections.unmodifiableSet(EnumSet.of(first, rest));
+        this.sourceNames = this.sources.stream().map(Enum::name).toList();
+    }
+
+    public OrderStatus target() {
+        return target;
+    }
+
+    public Set<OrderStatus> sources() {
+        return sources;
+    }
+
+    // Same set as sources(), for native queries that compare the varchar column
+    public List<String> sourceNames() {
+        return sourceNames;
+    }
+
+    public boolean allowedFrom(OrderStatus status) {
+        return sources.contains(status);
+    }
+
+    public static Set<OrderStatus> targetsFrom(OrderStatus status) {
+        return TARGETS.get(status);
+    }
+}
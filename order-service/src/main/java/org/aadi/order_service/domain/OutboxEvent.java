@@ -1,13 +1,13 @@
 package org.aadi.order_service.domain;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import org.springframework.data.domain.Persistable;
 import org.hibernate.annotations.JdbcTypeCode;
 import org.hibernate.type.SqlTypes;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.UUID;
 
@@ -15,7 +15,7 @@ import java.util.UUID;
 @Table(name = "outbox_events")
 @Data
 @AllArgsConstructor
-public class OutboxEvent {
+public class OutboxEvent implements Persistable<UUID> {
 
     @Id
     private UUID id;
@@ -29,54 +29,61 @@ public class OutboxEvent {
     @Column(nullable = false)
     private UUID aggregateId;
 
+    // JSON rows written before the binary codec; relayed as their UTF-8 bytes
     @JdbcTypeCode(SqlTypes.JSON)
-    @Column(nullable = false)
     private String payload;
 
+    // Event exactly as it goes on the wire (EventCodec), relayed verbatim
+    private byte[] payloadBytes;
+
     @Enumerated(EnumType.STRING)
     private OutboxStatus status;
 
     @Column(nullable = false, updatable = false)
     private Instant createdAt;
 
+    // Relay instance + claim currently holding this row, null when unclaimed
+    private String leaseOwner;
+
+    // Claim is void after this instant and the row may be re-claimed
+    private Instant leaseExpiresAt;
+
+    // Ids are assigned up front, so tell save() to persist rather than merge (no SELECT per insert)
+    private transient boolean persisted;
+
     protected OutboxEvent() {
     }
 
+    @Override
+    public boolean isNew() {
+        return !persisted;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markPersisted() {
+        this.persisted = true;
+    }
+
     public OutboxEvent(UUID aggregateId,
             String eventType,
-            String payload) {
+            byte[] payloadBytes) {
 
-        this.id = UUID.randomUUID();
+        this.id = UuidV7.next();
         this.aggregateType = "ORDER";
         this.aggregateId = aggregateId;
         this.eventType = eventType;
-        this.payload = payload;
+        this.payloadBytes = payloadBytes;
         this.status = OutboxStatus.PENDING;
         this.createdAt = Instant.now();
 
     }
 
-    /*
-     * ===============================
-     * FACTORY METHOD (IMPORTANT)
-     * ===============================
-     */
-    public static OutboxEvent create(
-            UUID aggregateId,
-            Enum<?> eventType,
-            Object payload) {
-        try {
-            ObjectMapper mapper = new ObjectMapper();
-
-            return new OutboxEvent(
-                    aggregateId,
-                    eventType.name(),
-                    mapper.writeValueAsString(payload));
-
-        } catch (JsonProcessingException e) {
-            throw new IllegalStateException(
-                    "Failed to serialize outbox payload", e);
-        }
+    // Bytes to put on the topic, whichever column the row was written to
+    public byte[] wirePayload() {
+        return payloadBytes != null
+                ? payloadBytes
+                : payload.getBytes(StandardCharsets.UTF_8);
     }
 
 }
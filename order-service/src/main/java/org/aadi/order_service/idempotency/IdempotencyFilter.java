@@ -4,27 +4,59 @@ import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
 
 import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+/*
+ * Replays the first successful response for an Idempotency-Key byte for
+ * byte, without reaching the controller or the orders table. A duplicate
+ * arriving while the first request is still running waits for it.
+ */
 @Component
 public class IdempotencyFilter extends OncePerRequestFilter {
 
-    private final IdempotencyStore store;
+    private static final String REPLAYED_HEADER = "Idempotent-Replayed";
 
-    public IdempotencyFilter(IdempotencyStore store){
+    // Per-connection or recomputed on every response; never replayed
+    private static final Set<String> SKIPPED_HEADERS = Set.of(
+            HttpHeaders.CONTENT_LENGTH.toLowerCase(),
+            HttpHeaders.TRANSFER_ENCODING.toLowerCase(),
+            HttpHeaders.DATE.toLowerCase(),
+            HttpHeaders.SET_COOKIE.toLowerCase(),
+            HttpHeaders.CONNECTION.toLowerCase()
+    );
+
+    private final IdempotentResponseStore store;
+    private final long inFlightTimeoutMs;
+
+    public IdempotencyFilter(
+            IdempotentResponseStore store,
+            @Value("${idempotency.response.in-flight-timeout:10s}") Duration inFlightTimeout){
         this.store=store;
+        this.inFlightTimeoutMs=inFlightTimeout.toMillis();
     }
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
 
         if (!"POST".equals(request.getMethod())
-                || !"/orders".equals(request.getRequestURI())) {
+                || !"/api/orders".equals(request.getServletPath())) {
 
             filterChain.doFilter(request, response);
             return;
@@ -36,24 +68,86 @@ public class IdempotencyFilter extends OncePerRequestFilter {
             return;
         }
 
-        store.findExisting(key).ifPresent(existing -> {
-            try {
-                response.setStatus(HttpStatus.OK.value());
-                response.setContentType(MediaType.APPLICATION_JSON_VALUE);
-                response.getWriter().write("""
-                    {"orderId":"%s"}
-                """.formatted(existing.getId()));
-                response.flushBuffer();
-            } catch (IOException e) {
-                throw new RuntimeException(e);
-            }
-        });
+        var stored = store.find(key);
+        if (stored.isPresent()) {
+            replay(stored.get(), response);
+            return;
+        }
 
-        if (response.isCommitted()) {
+        CompletableFuture<StoredResponse> running = store.claim(key);
+        if (running != null) {
+            StoredResponse first = await(running);
+            if (first != null) {
+                replay(first, response);
+                return;
+            }
+            if (!running.isDone()) {
+                response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+                response.sendError(HttpStatus.CONFLICT.value(), "Request with this Idempotency-Key is still in progress");
+                return;
+            }
+            // First request failed: nothing to replay, run this one normally
+            filterChain.doFilter(request, response);
             return;
         }
 
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        StoredResponse result = null;
+        try {
+            filterChain.doFilter(request, wrapper);
+
+            if (HttpStatus.valueOf(wrapper.getStatus()).is2xxSuccessful()) {
+                result = capture(wrapper);
+            }
+        } finally {
+            store.complete(key, result);
+            wrapper.copyBodyToResponse();
+        }
+    }
 
-        filterChain.doFilter(request, response);
+    private StoredResponse await(CompletableFuture<StoredResponse> running) throws ServletException {
+        try {
+            return running.get(inFlightTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServletException(e);
+        } catch (ExecutionException e) {
+            throw new ServletException(e.getCause());
+        }
+    }
+
+    private StoredResponse capture(ContentCachingResponseWrapper wrapper) {
+        Map<String, List<String>> headers = new LinkedHashMap<>();
+
+        // The servlet container keeps Content-Type apart from the other headers
+        if (wrapper.getContentType() != null) {
+            headers.put(HttpHeaders.CONTENT_TYPE, List.of(wrapper.getContentType()));
+        }
+        for (String name : wrapper.getHeaderNames()) {
+            if (!SKIPPED_HEADERS.contains(name.toLowerCase())
+                    && !HttpHeaders.CONTENT_TYPE.equalsIgnoreCase(name)) {
+                headers.put(name, new ArrayList<>(wrapper.getHeaders(name)));
+            }
+        }
+
+        return new StoredResponse(wrapper.getStatus(), headers, wrapper.getContentAsByteArray());
+    }
+
+    private void replay(StoredResponse stored, HttpServletResponse response) throws IOException {
+        response.setStatus(stored.status());
+        stored.headers().forEach((name, values) -> {
+            if (HttpHeaders.CONTENT_TYPE.equalsIgnoreCase(name)) {
+                response.setContentType(values.getFirst());
+                return;
+            }
+            response.setHeader(name, values.getFirst());
+            values.stream().skip(1).forEach(value -> response.addHeader(name, value));
+        });
+        response.setHeader(REPLAYED_HEADER, "true");
+        response.setContentLength(stored.body().length);
+        response.getOutputStream().write(stored.body());
+        response.flushBuffer();
     }
 }
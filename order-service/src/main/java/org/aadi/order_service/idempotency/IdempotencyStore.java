@@ -1,21 +1,153 @@
 package org.aadi.order_service.idempotency;
 
-import org.aadi.order_service.domain.Order;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.aadi.order_service.repo.OrderRepository;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
 
+/*
+ * Idempotency-Key -> orderId lookups, cheapest tier first:
+ *
+ *   1. LRU of recently resolved keys (retries of recent requests)
+ *   2. bloom filter of keys seen by this instance: a negative answer means
+ *      "definitely new here" and skips the orders table
+ *   3. Redis, optional and shared across replicas; asked whatever the
+ *      bloom filter says, as it holds keys other replicas have seen
+ *   4. the orders table, only on a bloom hit
+ *
+ * A key first seen on another replica can be answered "new" by tier 2
+ * when Redis is off, and tier 4 may run on a lagging read replica. In
+ * both cases the insert into order_idempotency_keys fails, and
+ * OrderService's race path resolves the key to the original order on the
+ * primary.
+ */
 @Component
 public class IdempotencyStore {
 
+    private static final String REDIS_PREFIX = "idem:order:";
+
     private final OrderRepository orderRepository;
+    private final StringRedisTemplate redis;
+    private final Duration redisTtl;
+    private final long bloomCapacity;
+    private final double bloomFpp;
+    private final Map<String, UUID> lru;
+
+    // Two generations so the filter tracks *recent* keys without growing unbounded
+    private volatile BloomFilter current;
+    private volatile BloomFilter previous;
+
+    private final Counter lruHit;
+    private final Counter redisHit;
+    private final Counter dbHit;
+    private final Counter bloomMiss;
+    private final Counter dbMiss;
+    private final Counter falsePositive;
 
-    public IdempotencyStore(OrderRepository orderRepository) {
+    public IdempotencyStore(
+            OrderRepository orderRepository,
+            ObjectProvider<StringRedisTemplate> redisProvider,
+            @Value("${idempotency.redis.enabled:false}") boolean redisEnabled,
+            @Value("${idempotency.redis.ttl:24h}") Duration redisTtl,
+            @Value("${idempotency.bloom.expected-insertions:1000000}") long bloomCapacity,
+            @Value("${idempotency.bloom.false-positive-rate:0.01}") double bloomFpp,
+            @Value("${idempotency.lru.max-entries:100000}") int lruMaxEntries,
+            MeterRegistry meterRegistry) {
         this.orderRepository=orderRepository;
+        this.redis = redisEnabled ? redisProvider.getIfAvailable() : null;
+        this.redisTtl = redisTtl;
+        this.bloomCapacity = bloomCapacity;
+        this.bloomFpp = bloomFpp;
+        this.current = new BloomFilter(bloomCapacity, bloomFpp);
+        this.previous = new BloomFilter(bloomCapacity, bloomFpp);
+        this.lru = Collections.synchronizedMap(new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, UUID> eldest) {
+                return size() > lruMaxEntries;
+            }
+        });
+
+        this.lruHit = lookup(meterRegistry, "lru", "hit");
+        this.redisHit = lookup(meterRegistry, "redis", "hit");
+        this.dbHit = lookup(meterRegistry, "db", "hit");
+        this.bloomMiss = lookup(meterRegistry, "bloom", "miss");
+        this.dbMiss = lookup(meterRegistry, "db", "miss");
+        this.falsePositive = lookup(meterRegistry, "bloom", "false_positive");
+    }
+
+    public Optional<UUID> findExisting(String key) {
+
+        UUID cached = lru.get(key);
+        if (cached != null) {
+            lruHit.increment();
+            return Optional.of(cached);
+        }
+
+        boolean maybeSeen = current.mightContain(key) || previous.mightContain(key);
+
+        if (redis != null) {
+            String value = redis.opsForValue().get(REDIS_PREFIX + key);
+            if (value != null) {
+                redisHit.increment();
+                UUID orderId = UUID.fromString(value);
+                lru.put(key, orderId);
+                return Optional.of(orderId);
+            }
+        }
+
+        if (!maybeSeen) {
+            bloomMiss.increment();
+            return Optional.empty();
+        }
+
+        Optional<UUID> found = orderRepository.findIdByIdempotencyKey(key);
+        if (found.isPresent()) {
+            dbHit.increment();
+            lru.put(key, found.get());
+        } else {
+            dbMiss.increment();
+            falsePositive.increment();
+        }
+        return found;
+    }
+
+    // Record a key once its order is committed, in every tier
+    public void remember(String key, UUID orderId) {
+        BloomFilter filter = current;
+        if (filter.insertions() >= bloomCapacity) {
+            filter = rotate(filter);
+        }
+        filter.put(key);
+
+        lru.put(key, orderId);
+
+        if (redis != null) {
+            redis.opsForValue().set(REDIS_PREFIX + key, orderId.toString(), redisTtl);
+        }
+    }
+
+    private synchronized BloomFilter rotate(BloomFilter full) {
+        if (current == full) {
+            previous = full;
+            current = new BloomFilter(bloomCapacity, bloomFpp);
+        }
+        return current;
     }
 
-    public Optional<Order> findExisting(String key) {
-        return orderRepository.findByIdempotencyKey(key);
+    private static Counter lookup(MeterRegistry registry, String tier, String result) {
+        return Counter.builder("idempotency.lookup")
+                .tag("tier", tier)
+                .tag("result", result)
+                .register(registry);
     }
 }
@@ -0,0 +1,147 @@
+package org.aadi.order_service.idempotency;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisStringCommands.SetOption;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Replay store for idempotent requests: Idempotency-Key -> encoded
+ * StoredResponse with a TTL, kept in a bounded local map and, when
+ * idempotency.redis.enabled, in Redis for the other replicas.
+ *
+ * Also tracks requests still in flight so concurrent duplicates on this
+ * instance wait for the first one instead of racing it into the database.
+ */
+@Component
+public class IdempotentResponseStore {
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotentResponseStore.class);
+
+    private static final String REDIS_PREFIX = "idem:resp:";
+
+    private final StringRedisTemplate redis;
+    private final long ttlMs;
+    private final Map<String, Entry> local;
+    private final Map<String, CompletableFuture<StoredResponse>> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter localHit;
+    private final Counter redisHit;
+    private final Counter miss;
+
+    public IdempotentResponseStore(
+            ObjectProvider<StringRedisTemplate> redisProvider,
+            @Value("${idempotency.redis.enabled:false}") boolean redisEnabled,
+            @Value("${idempotency.response.ttl:24h}") Duration ttl,
+            @Value("${idempotency.response.max-entries:100000}") int maxEntries,
+            MeterRegistry meterRegistry) {
+        this.redis = redisEnabled ? redisProvider.getIfAvailable() : null;
+        this.ttlMs = ttl.toMillis();
+        this.local = Collections.synchronizedMap(new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        });
+
+        this.localHit = replay(meterRegistry, "local", "hit");
+        this.redisHit = replay(meterRegistry, "redis", "hit");
+        this.miss = replay(meterRegistry, "none", "miss");
+    }
+
+    public Optional<StoredResponse> find(String key) {
+
+        Entry entry = local.get(key);
+        if (entry != null) {
+            if (entry.expiresAtMs() > System.currentTimeMillis()) {
+                localHit.increment();
+                return Optional.of(StoredResponse.decode(entry.encoded()));
+            }
+            local.remove(key);
+        }
+
+        if (redis != null) {
+            try {
+                byte[] encoded = redis.execute((RedisCallback<byte[]>) connection ->
+                        connection.stringCommands().get(redisKey(key)));
+                if (encoded != null) {
+                    redisHit.increment();
+                    // Remote TTL is authoritative; keep a full local TTL only as an upper bound
+                    local.put(key, new Entry(encoded, System.currentTimeMillis() + ttlMs));
+                    return Optional.of(StoredResponse.decode(encoded));
+                }
+            } catch (RuntimeException ex) {
+                log.warn("Idempotency response lookup in Redis failed for key {}", key, ex);
+            }
+        }
+
+        miss.increment();
+        return Optional.empty();
+    }
+
+    /*
+     * Returns null if the caller is now the only request in flight for this
+     * key and must call complete() when done; otherwise the future of the
+     * request already in flight.
+     */
+    public CompletableFuture<StoredResponse> claim(String key) {
+        return inFlight.putIfAbsent(key, new CompletableFuture<>());
+    }
+
+    // Release a claim; a null response (request failed) lets waiters retry on their own
+    public void complete(String key, StoredResponse response) {
+        if (response != null) {
+            byte[] encoded = response.encode();
+            local.put(key, new Entry(encoded, System.currentTimeMillis() + ttlMs));
+
+            if (redis != null) {
+                try {
+                    redis.execute((RedisCallback<Boolean>) connection ->
+                            connection.stringCommands().set(
+                                    redisKey(key),
+                                    encoded,
+                                    Expiration.milliseconds(ttlMs),
+                                    SetOption.upsert()
+                            ));
+                } catch (RuntimeException ex) {
+                    log.warn("Idempotency response write to Redis failed for key {}", key, ex);
+                }
+            }
+        }
+
+        CompletableFuture<StoredResponse> mine = inFlight.remove(key);
+        if (mine != null) {
+            mine.complete(response);
+        }
+    }
+
+    private static byte[] redisKey(String key) {
+        return (REDIS_PREFIX + key).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static Counter replay(MeterRegistry registry, String tier, String result) {
+        return Counter.builder("idempotency.replay")
+                .tag("tier", tier)
+                .tag("result", result)
+                .register(registry);
+    }
+
+    private record Entry(byte[] encoded, long expiresAtMs) {
+    }
+}
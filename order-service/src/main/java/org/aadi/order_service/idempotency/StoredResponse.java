@@ -0,0 +1,69 @@
+package org.aadi.order_service.idempotency;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * The first successful response for an Idempotency-Key, exactly as the
+ * client saw it. Encoded as a small length-prefixed binary blob
+ * (status, header count, name/value pairs, body) for the local cache and Redis.
+ */
+record StoredResponse(int status, Map<String, List<String>> headers, byte[] body) {
+
+    private static final byte VERSION = 1;
+
+    byte[] encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + body.length);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            out.writeShort(status);
+            out.writeShort(headers.size());
+            for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+                out.writeUTF(header.getKey());
+                out.writeShort(header.getValue().size());
+                for (String value : header.getValue()) {
+                    out.writeUTF(value);
+                }
+            }
+            out.writeInt(body.length);
+            out.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static StoredResponse decode(byte[] encoded) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(encoded))) {
+            byte version = in.readByte();
+            if (version != VERSION) {
+                throw new IllegalStateException("Unknown stored response version " + version);
+            }
+            int status = in.readUnsignedShort();
+
+            int headerCount = in.readUnsignedShort();
+            Map<String, List<String>> headers = new LinkedHashMap<>();
+            for (int i = 0; i < headerCount; i++) {
+                String name = in.readUTF();
+                String[] values = new String[in.readUnsignedShort()];
+                for (int v = 0; v < values.length; v++) {
+                    values[v] = in.readUTF();
+                }
+                headers.put(name, List.of(values));
+            }
+
+            byte[] body = new byte[in.readInt()];
+            in.readFully(body);
+            return new StoredResponse(status, headers, body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -1,43 +1,34 @@
 package org.aadi.order_service.orderconsumer;
 
-import org.aadi.order_service.domain.Order;
-import org.aadi.order_service.domain.OrderStatus;
-import org.aadi.order_service.repo.OrderRepository;
+import org.aadi.event_codec.OrderPaymentTimeout;
+import org.aadi.order_service.domain.OrderTransition;
+import org.aadi.order_service.service.OrderStateMachine;
+import org.aadi.order_service.shard.Shards;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Map;
 import java.util.UUID;
 
 @Component
 public class OrderTimeoutConsumer {
 
-    private final OrderRepository orderRepo;
+    private final OrderStateMachine stateMachine;
+    private final Shards shards;
 
-    public OrderTimeoutConsumer(OrderRepository orderRepo) {
-        this.orderRepo = orderRepo;
+    public OrderTimeoutConsumer(OrderStateMachine stateMachine, Shards shards) {
+        this.stateMachine = stateMachine;
+        this.shards = shards;
     }
 
     @KafkaListener(
             topics = "order.payment.timeout",
             groupId = "order-service"
     )
-    @Transactional
-    public void handleTimeout(Map<String, Object> event) {
+    public void handleTimeout(OrderPaymentTimeout event) {
 
-        UUID orderId =
-                UUID.fromString(event.get("orderId").toString());
+        UUID orderId = event.orderId();
 
-        Order order = orderRepo.findById(orderId)
-                .orElseThrow();
-
-        // Idempotency
-        if (order.getStatus() == OrderStatus.PAYMENT_TIMEOUT ||
-                order.getStatus() == OrderStatus.CANCELLED) {
-            return;
-        }
-
-        order.cancel();
+        // Idempotency: a no-op unless the order is still CREATED / PAYMENT_PENDING
+        shards.run(shards.ofOrder(orderId), () -> stateMachine.apply(orderId, OrderTransition.CANCEL));
     }
 }
@@ -0,0 +1,106 @@
+package org.aadi.order_service.paymentconsumer;
+
+import org.aadi.event_codec.DomainEvent;
+import org.aadi.event_codec.PaymentCompleted;
+import org.aadi.event_codec.PaymentFailed;
+import org.aadi.order_service.service.OrderStateMachine;
+import org.aadi.order_service.shard.Shards;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/*
+ * Batch variant of PaymentEventConsumer: one poll batch, one conditional
+ * UPDATE, one commit. Within a batch the first result per order wins, as
+ * it would have one record at a time.
+ *
+ * A record that cannot be read (bad payload, failed deserialisation) is
+ * reported by index: everything before it is applied and committed, the
+ * record itself goes to payment.*.dlt after retries. Unlike the per-record
+ * consumer, results for unknown orders are skipped rather than dead-lettered.
+ *
+ * With several shards it is one UPDATE and commit per shard in the batch.
+ * If a later shard fails, the whole batch is redelivered, and the shards
+ * already committed match nothing the second time.
+ */
+@Component
+@ConditionalOnProperty(name = "order.payment-events.batch.enabled", havingValue = "true")
+public class PaymentEventBatchConsumer {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentEventBatchConsumer.class);
+
+    private final OrderStateMachine stateMachine;
+    private final Shards shards;
+
+    public PaymentEventBatchConsumer(OrderStateMachine stateMachine, Shards shards) {
+        this.stateMachine = stateMachine;
+        this.shards = shards;
+    }
+
+    @KafkaListener(
+            topics = {
+                    "payment.completed",
+                    "payment.failed"
+            },
+            groupId = "order-microservice",
+            containerFactory = "batchKafkaListenerContainerFactory"
+    )
+    public void handlePaymentEvents(List<ConsumerRecord<Object, DomainEvent>> records) {
+
+        // orderId -> paid?, first result per order
+        Map<UUID, Boolean> results = new LinkedHashMap<>();
+        RuntimeException poison = null;
+        int poisonIndex = -1;
+
+        for (int i = 0; i < records.size(); i++) {
+            try {
+                DomainEvent event = records.get(i).value();
+                boolean paid = paid(event);
+                if (event.orderId() == null) {
+                    throw new IllegalArgumentException("Payment event without orderId: " + event);
+                }
+                results.putIfAbsent(event.orderId(), paid);
+            } catch (RuntimeException ex) {
+                poison = ex;
+                poisonIndex = i;
+                break;
+            }
+        }
+
+        if (!results.isEmpty()) {
+            int updated = 0;
+            for (Map.Entry<Integer, List<UUID>> group : shards.byShard(results.keySet()).entrySet()) {
+                List<UUID> ids = group.getValue();
+                List<UUID> paid = ids.stream().filter(results::get).toList();
+                updated += shards.on(group.getKey(), () -> stateMachine.applyPaymentResults(ids, paid));
+            }
+
+            log.debug("Applied {} payment results from {} records ({} orders changed)",
+                    results.size(), poisonIndex < 0 ? records.size() : poisonIndex, updated);
+        }
+
+        if (poison != null) {
+            throw new BatchListenerFailedException(
+                    "Unreadable payment event", poison, records.get(poisonIndex));
+        }
+    }
+
+    private static boolean paid(DomainEvent event) {
+        return switch (event) {
+            case PaymentCompleted completed -> true;
+            case PaymentFailed failed -> false;
+            // ErrorHandlingDeserializer leaves a null value when the payload could not be read
+            case null -> throw new IllegalArgumentException("Unreadable payment event");
+            default -> throw new IllegalArgumentException("Not a payment result: " + event);
+        };
+    }
+}
@@ -1,24 +1,32 @@
 package org.aadi.order_service.paymentconsumer;
 
-import org.aadi.order_service.domain.Order;
-import org.aadi.order_service.domain.OrderStatus;
+import org.aadi.event_codec.DomainEvent;
+import org.aadi.event_codec.PaymentCompleted;
+import org.aadi.event_codec.PaymentFailed;
+import org.aadi.order_service.domain.OrderTransition;
 import org.aadi.order_service.repo.OrderRepository;
+import org.aadi.order_service.service.OrderStateMachine;
+import org.aadi.order_service.shard.Shards;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Map;
 import java.util.UUID;
 
 
 @Component
+@ConditionalOnProperty(name = "order.payment-events.batch.enabled", havingValue = "false", matchIfMissing = true)
 public class PaymentEventConsumer {
 
     private final OrderRepository repository;
+    private final OrderStateMachine stateMachine;
+    private final Shards shards;
 
 
-    public PaymentEventConsumer(OrderRepository repository) {
+    public PaymentEventConsumer(OrderRepository repository, OrderStateMachine stateMachine, Shards shards) {
         this.repository = repository;
+        this.stateMachine = stateMachine;
+        this.shards = shards;
     }
 
     @KafkaListener(
@@ -28,29 +36,26 @@ public class PaymentEventConsumer {
             },
             groupId = "order-microservice"
     )
-    @Transactional
-    public void handlePaymentEvent(Map<String, Object> event) {
+    public void handlePaymentEvent(DomainEvent event) {
 
-        UUID orderId = UUID.fromString(event.get("orderId").toString());
-        String status = event.get("status").toString();
+        UUID orderId = event.orderId();
 
-        Order order = repository.findById(orderId)
-                .orElseThrow(() ->
-                        new IllegalStateException("Order not found: " + orderId)
-                );
+        OrderTransition transition = switch (event) {
+            case PaymentCompleted completed -> OrderTransition.PAY;
+            case PaymentFailed failed -> OrderTransition.FAIL_PAYMENT;
+            default -> throw new IllegalArgumentException("Not a payment result: " + event);
+        };
 
-        // ---- Idempotency guard (important)
-        if (order.getStatus() == OrderStatus.PAID
-                || order.getStatus() == OrderStatus.PAYMENT_FAILED) {
+        // The id names the order's shard: one database, no fan-out
+        int shard = shards.ofOrder(orderId);
+
+        // ---- Idempotency guard: the conditional UPDATE is a no-op once a result is applied
+        if (shards.on(shard, () -> stateMachine.apply(orderId, transition))) {
             return;
         }
 
-        if ("SUCCESS".equals(status)) {
-            order.markPaid();
-        } else {
-            order.markPaymentFailed();
+        if (!shards.on(shard, () -> repository.existsPruned(orderId))) {
+            throw new IllegalStateException("Order not found: " + orderId);
         }
-
-        repository.save(order);
     }
 }
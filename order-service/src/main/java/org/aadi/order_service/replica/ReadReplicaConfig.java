@@ -0,0 +1,96 @@
+package org.aadi.order_service.replica;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.autoconfigure.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Read/write split, opt-in with order.datasource.replicas.enabled.
+ *
+ * The DataSource that JPA and JdbcTemplate see is a
+ * LazyConnectionDataSourceProxy over the primary pool. It hands out a
+ * placeholder connection and only takes a physical one at the first
+ * statement, when the transaction manager has already marked it
+ * read-only or not. Read-only transactions go to ReplicaRoutingDataSource.
+ * That includes @Transactional(readOnly = true), and so the repository
+ * reads marked read-only, when they run outside a transaction. Writes,
+ * and JDBC work outside any transaction, stay on the primary.
+ *
+ * Off when order.shards.enabled is set as well: ShardingConfig then fails
+ * startup, naming both, rather than two @Primary DataSources colliding.
+ */
+@Configuration
+@ConditionalOnProperty(name = "order.datasource.replicas.enabled", havingValue = "true")
+@ConditionalOnProperty(name = "order.shards.enabled", havingValue = "false", matchIfMissing = true)
+public class ReadReplicaConfig {
+
+    // What Boot would have built from spring.datasource.*, had this config not defined a DataSource
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+    }
+
+    @Bean
+    ReplicaRoutingDataSource replicaDataSource(
+            HikariDataSource primaryDataSource,
+            @Value("${order.datasource.replicas.urls:}") List<String> urls,
+            @Value("${order.datasource.replicas.username:${spring.datasource.username:}}") String username,
+            @Value("${order.datasource.replicas.password:${spring.datasource.password:}}") String password,
+            @Value("${order.datasource.replicas.pool-size:10}") int poolSize,
+            @Value("${order.datasource.replicas.connection-timeout:1s}") Duration connectionTimeout,
+            @Value("${order.datasource.replicas.max-staleness:2s}") Duration maxStaleness,
+            @Value("${order.datasource.replicas.lag-check-interval-ms:500}") long lagCheckIntervalMs,
+            MeterRegistry meterRegistry) {
+
+        List<ReplicaRoutingDataSource.Replica> replicas = new ArrayList<>();
+        for (String url : urls) {
+            if (url.isBlank()) {
+                continue;
+            }
+            String name = "replica-" + (replicas.size() + 1);
+
+            HikariDataSource pool = new HikariDataSource();
+            pool.setPoolName(name);
+            pool.setJdbcUrl(url.trim());
+            pool.setUsername(username);
+            pool.setPassword(password);
+            pool.setMaximumPoolSize(poolSize);
+            // Short, so a dead replica costs a read this long before it falls back to the primary
+            pool.setConnectionTimeout(connectionTimeout.toMillis());
+            pool.setReadOnly(true);
+            // Connect on first use: a replica that is down at startup must not stop the service
+            pool.setInitializationFailTimeout(-1);
+
+            replicas.add(new ReplicaRoutingDataSource.Replica(name, pool));
+        }
+        if (replicas.isEmpty()) {
+            throw new IllegalStateException(
+                    "order.datasource.replicas.enabled is true but order.datasource.replicas.urls is empty");
+        }
+
+        return new ReplicaRoutingDataSource(primaryDataSource, replicas, maxStaleness, lagCheckIntervalMs, meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    DataSource dataSource(HikariDataSource primaryDataSource, ReplicaRoutingDataSource replicaDataSource) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primaryDataSource);
+        dataSource.setReadOnlyDataSource(replicaDataSource);
+        return dataSource;
+    }
+}
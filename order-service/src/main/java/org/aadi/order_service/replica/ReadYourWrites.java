@@ -0,0 +1,62 @@
+package org.aadi.order_service.replica;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/*
+ * Read-your-writes on top of replica routing. A customer who has just
+ * created an order reads from the primary for max-staleness afterwards.
+ * After that, any replica still in use is guaranteed to have the write.
+ * Everyone else keeps reading from the replicas.
+ *
+ * Tracked per service instance, like the idempotency LRU; without
+ * replicas it is a no-op.
+ */
+@Component
+public class ReadYourWrites {
+
+    private final boolean enabled;
+    private final long windowMs;
+    private final Map<String, Long> lastWrite;
+
+    public ReadYourWrites(
+            @Value("${order.datasource.replicas.enabled:false}") boolean enabled,
+            @Value("${order.datasource.replicas.max-staleness:2s}") Duration window,
+            @Value("${order.datasource.replicas.read-your-writes.max-entries:100000}") int maxEntries) {
+        this.enabled = enabled;
+        this.windowMs = window.toMillis();
+        this.lastWrite = Collections.synchronizedMap(new LinkedHashMap<>(1024, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > maxEntries
+                        || eldest.getValue() + windowMs < System.currentTimeMillis();
+            }
+        });
+    }
+
+    // Call once the customer's write has committed
+    public void wrote(String customerId) {
+        if (enabled) {
+            // Re-inserted rather than updated, so insertion order stays oldest-first
+            lastWrite.remove(customerId);
+            lastWrite.put(customerId, System.currentTimeMillis());
+        }
+    }
+
+    // Runs onPrimary for a customer inside their window, otherwise the replica-routed read
+    public <T> T read(String customerId, Supplier<T> onReplica, Supplier<T> onPrimary) {
+        if (enabled) {
+            Long at = lastWrite.get(customerId);
+            if (at != null && at + windowMs >= System.currentTimeMillis()) {
+                return onPrimary.get();
+            }
+        }
+        return onReplica.get();
+    }
+}
@@ -0,0 +1,253 @@
+package org.aadi.order_service.replica;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Connections for read-only transactions: round-robin over the replicas
+ * that are fresh enough, the primary when none is.
+ *
+ * Lag is measured against the primary, not against what a replica has
+ * received, so one that stalls receiving WAL does not look fresh. Every
+ * lag-check-interval the primary's WAL flush position is sampled along
+ * with the time; a replica that has replayed past a sample holds every
+ * commit from before it. Its lag is the age of the newest such sample,
+ * and it is used only while that lag plus the age of the measurement
+ * stays within max-staleness, so no read sees data older than the bound.
+ * A replica past no recent sample, that fails a check, stops streaming
+ * or refuses a connection is skipped until its next good check.
+ *
+ * Checks run on their own thread, not the shared @Scheduled one, so a
+ * slow outbox relay never holds them back and lets a fresh replica look
+ * stale (or the reverse).
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    // Replicas only ever receive flushed WAL, so that is the position to compare with
+    private static final String PRIMARY_LSN_SQL = "SELECT pg_current_wal_flush_lsn()::text";
+
+    // A server that is not in recovery (a standalone copy) counts as fully caught up
+    private static final String REPLICA_LSN_SQL = """
+            SELECT CASE
+                     WHEN NOT pg_is_in_recovery() THEN 'caught-up'
+                     WHEN NOT EXISTS (SELECT 1 FROM pg_stat_wal_receiver WHERE status = 'streaming') THEN NULL
+                     ELSE pg_last_wal_replay_lsn()::text
+                   END
+            """;
+
+    private static final String CAUGHT_UP = "caught-up";
+
+    // Primary WAL flush position and when it was read
+    private record WalSample(long lsn, long at) {
+    }
+
+    static final class Replica {
+
+        final String name;
+        final HikariDataSource pool;
+
+        // Lag at the last check, and when that was; MAX_VALUE while unusable
+        volatile long lagMs = Long.MAX_VALUE;
+        volatile long checkedAt;
+
+        Replica(String name, HikariDataSource pool) {
+            this.name = name;
+            this.pool = pool;
+        }
+
+        boolean freshWithin(long maxStalenessMs, long now) {
+            long lag = lagMs;
+            return lag != Long.MAX_VALUE && lag + (now - checkedAt) <= maxStalenessMs;
+        }
+
+        // True if it was usable until now, so a down replica is logged once and not every check
+        boolean markDown() {
+            boolean wasUp = lagMs != Long.MAX_VALUE;
+            lagMs = Long.MAX_VALUE;
+            return wasUp;
+        }
+    }
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final long maxStalenessMs;
+    private final AtomicInteger next = new AtomicInteger();
+    private final ScheduledExecutorService lagChecker;
+
+    // Samples no older than max-staleness, oldest first; only the lag checker thread uses them
+    private final Deque<WalSample> samples = new ArrayDeque<>();
+    private boolean primaryReachable = true;
+
+    private final Counter replicaReads;
+    private final Counter primaryReads;
+
+    ReplicaRoutingDataSource(
+            DataSource primary,
+            List<Replica> replicas,
+            Duration maxStaleness,
+            long lagCheckIntervalMs,
+            MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.replicas = replicas;
+        this.maxStalenessMs = maxStaleness.toMillis();
+
+        this.replicaReads = Counter.builder("order.datasource.reads")
+                .tag("target", "replica")
+                .description("Read-only transactions served by a replica")
+                .register(meterRegistry);
+        this.primaryReads = Counter.builder("order.datasource.reads")
+                .tag("target", "primary")
+                .description("Read-only transactions that fell back to the primary")
+                .register(meterRegistry);
+        for (Replica replica : replicas) {
+            Gauge.builder("order.datasource.replica.lag", replica,
+                            r -> r.lagMs == Long.MAX_VALUE ? Double.NaN : r.lagMs)
+                    .tag("replica", replica.name)
+                    .description("Age of the primary's data at the last check, NaN while the replica is not usable")
+                    .baseUnit("milliseconds")
+                    .register(meterRegistry);
+        }
+
+        this.lagChecker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "replica-lag-check");
+            t.setDaemon(true);
+            return t;
+        });
+        lagChecker.scheduleWithFixedDelay(this::checkLag, 0, lagCheckIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        long now = System.currentTimeMillis();
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            if (!replica.freshWithin(maxStalenessMs, now)) {
+                continue;
+            }
+            try {
+                Connection connection = replica.pool.getConnection();
+                replicaReads.increment();
+                return connection;
+            } catch (SQLException ex) {
+                if (replica.markDown()) {
+                    log.warn("Replica {} unavailable, skipping it until the next lag check", replica.name, ex);
+                }
+            }
+        }
+
+        primaryReads.increment();
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Replica credentials come from order.datasource.replicas.*");
+    }
+
+    void checkLag() {
+        // Taken before the primary is read: everything committed by now is at or below the sample
+        long now = System.currentTimeMillis();
+        try (Connection connection = primary.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(PRIMARY_LSN_SQL)) {
+
+            rs.next();
+            samples.addLast(new WalSample(lsn(rs.getString(1)), now));
+            primaryReachable = true;
+        } catch (SQLException | RuntimeException ex) {
+            // No new sample: replicas age out of max-staleness unless the primary comes back
+            if (primaryReachable) {
+                log.warn("Lag check could not read the primary's WAL position", ex);
+            }
+            primaryReachable = false;
+            return;
+        }
+        while (samples.size() > 1 && samples.peekFirst().at() < now - maxStalenessMs) {
+            samples.removeFirst();
+        }
+
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.pool.getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery(REPLICA_LSN_SQL)) {
+
+                rs.next();
+                String replayed = rs.getString(1);
+                if (replayed == null) {
+                    if (replica.markDown()) {
+                        log.warn("Replica {} is not streaming from the primary", replica.name);
+                    }
+                    continue;
+                }
+
+                Long since = CAUGHT_UP.equals(replayed) ? (Long) now : newestSampleAtOrBelow(lsn(replayed));
+                if (since == null) {
+                    if (replica.markDown()) {
+                        log.warn("Replica {} is more than {} ms behind the primary", replica.name, maxStalenessMs);
+                    }
+                    continue;
+                }
+
+                long lag = now - since;
+                if (replica.lagMs == Long.MAX_VALUE) {
+                    log.info("Replica {} in use, {} ms behind", replica.name, lag);
+                }
+                replica.checkedAt = now;
+                replica.lagMs = lag;
+            } catch (SQLException | RuntimeException ex) {
+                if (replica.markDown()) {
+                    log.warn("Lag check failed on replica {}", replica.name, ex);
+                }
+            }
+        }
+    }
+
+    // Time of the newest sample the replica has replayed past, null if none
+    private Long newestSampleAtOrBelow(long replayedLsn) {
+        Iterator<WalSample> newestFirst = samples.descendingIterator();
+        while (newestFirst.hasNext()) {
+            WalSample sample = newestFirst.next();
+            if (sample.lsn() <= replayedLsn) {
+                return sample.at();
+            }
+        }
+        return null;
+    }
+
+    // pg_lsn text form: two hex halves of a 64-bit WAL position, "16/B374D848"
+    static long lsn(String text) {
+        int slash = text.indexOf('/');
+        return Long.parseLong(text.substring(0, slash), 16) << 32 | Long.parseLong(text.substring(slash + 1), 16);
+    }
+
+    @Override
+    public void close() {
+        lagChecker.shutdownNow();
+        replicas.forEach(replica -> replica.pool.close());
+    }
+}
@@ -0,0 +1,54 @@
+package org.aadi.order_service.repo;
+
+import org.aadi.order_service.domain.UuidV7;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.UUID;
+
+/*
+ * Bounds on orders.created_at derived from order ids, so lookups by id can
+ * be pruned to the partitions that may hold them. A UUIDv7 id carries the
+ * millisecond it was generated in, a moment before Order set createdAt;
+ * SLACK absorbs that gap and ids that borrowed ahead in a burst. Any id
+ * that is not v7 (orders created before UuidV7) widens the range to
+ * everything.
+ */
+public record CreatedAtRange(Instant from, Instant to) {
+
+    private static final Duration SLACK = Duration.ofHours(1);
+
+    // Inside timestamptz range, so the bounds can be bound as parameters as-is
+    public static final CreatedAtRange ALL = new CreatedAtRange(
+            Instant.parse("1970-01-01T00:00:00Z"),
+            Instant.parse("9999-12-31T00:00:00Z")
+    );
+
+    public static CreatedAtRange of(UUID id) {
+        Instant created = UuidV7.timestamp(id);
+        return created == null
+                ? ALL
+                : new CreatedAtRange(created.minus(SLACK), created.plus(SLACK));
+    }
+
+    public static CreatedAtRange of(Collection<UUID> ids) {
+        Instant min = null;
+        Instant max = null;
+        for (UUID id : ids) {
+            Instant created = UuidV7.timestamp(id);
+            if (created == null) {
+                return ALL;
+            }
+            if (min == null || created.isBefore(min)) {
+                min = created;
+            }
+            if (max == null || created.isAfter(max)) {
+                max = created;
+            }
+        }
+        return min == null
+                ? ALL
+                : new CreatedAtRange(min.minus(SLACK), max.plus(SLACK));
+    }
+}
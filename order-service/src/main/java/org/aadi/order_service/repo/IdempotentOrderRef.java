@@ -0,0 +1,7 @@
+package org.aadi.order_service.repo;
+
+import java.util.UUID;
+
+// Idempotency-Key -> order it created, without loading the entity
+public record IdempotentOrderRef(String idempotencyKey, UUID id) {
+}
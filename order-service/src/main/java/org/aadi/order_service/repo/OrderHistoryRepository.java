@@ -0,0 +1,58 @@
+package org.aadi.order_service.repo;
+
+import org.aadi.order_service.domain.OrderHistory;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/*
+ * Seek pagination over idx_order_history_customer_created_id: newest
+ * first, each page starts strictly after the cursor and there is no
+ * OFFSET or count(*), so every page costs the same.
+ *
+ * Read-only throughout, so a read replica can serve these (see ReadReplicaConfig).
+ */
+@Transactional(readOnly = true)
+public interface OrderHistoryRepository extends JpaRepository<OrderHistory, UUID> {
+
+    // Offset paging for GET /api/orders; prefer the seek pages below
+    Page<OrderHistory> findByCustomerId(String customerId, Pageable pageable);
+
+    @Query("""
+            select h from OrderHistory h
+             where h.customerId = :customerId
+             order by h.createdAt desc, h.orderId
+            """)
+    List<OrderHistory> findFirstPage(
+            @Param("customerId") String customerId,
+            Limit limit
+    );
+
+    @Query("""
+            select h from OrderHistory h
+             where h.customerId = :customerId
+               and h.createdAt <= :createdAt
+               and (h.createdAt < :createdAt or h.orderId > :orderId)
+             order by h.createdAt desc, h.orderId
+            """)
+    List<OrderHistory> findPageAfter(
+            @Param("customerId") String customerId,
+            @Param("createdAt") Instant createdAt,
+            @Param("orderId") UUID orderId,
+            Limit limit
+    );
+
+    default List<OrderHistory> findPage(String customerId, OrderHistoryCursor after, int size) {
+        return after == null
+                ? findFirstPage(customerId, Limit.of(size))
+                : findPageAfter(customerId, after.createdAt(), after.orderId(), Limit.of(size));
+    }
+}
@@ -2,23 +2,174 @@ package org.aadi.order_service.repo;
 
 import org.aadi.order_service.domain.Order;
 import org.aadi.order_service.domain.OrderStatus;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 public interface OrderRepository extends JpaRepository<Order, UUID> {
 
-    Optional<Order> findByIdempotencyKey(String key);
+    /*
+     * Idempotency keys are resolved against order_idempotency_keys, one
+     * primary key probe each, rather than an idempotency_key index in
+     * every orders partition.
+     *
+     * The plain reads here are read-only so that, outside a transaction,
+     * they can be served by a read replica (see ReadReplicaConfig).
+     */
+    @Transactional(readOnly = true)
+    @Query("select k.orderId from OrderIdempotencyKey k where k.idempotencyKey = :key")
+    Optional<UUID> findIdByIdempotencyKey(@Param("key") String key);
 
-    List<Order> findByStatusAndCreatedAtBefore(
+    // Resolves a whole batch of keys in one IN query
+    @Transactional(readOnly = true)
+    @Query("""
+            select new org.aadi.order_service.repo.IdempotentOrderRef(k.idempotencyKey, k.orderId)
+              from OrderIdempotencyKey k
+             where k.idempotencyKey in :keys
+            """)
+    List<IdempotentOrderRef> findRefsByIdempotencyKeyIn(@Param("keys") Collection<String> keys);
+
+    /*
+     * Lookups and updates by id also bound created_at (see CreatedAtRange)
+     * so Postgres prunes them to the one or two monthly partitions that can
+     * hold the order, instead of probing the primary key of every partition.
+     */
+    // Read-write on purpose, so it is answered by the primary: callers ask right after a missed update
+    @Transactional
+    @Query("""
+            select count(o) > 0
+              from Order o
+             where o.id = :id
+               and o.createdAt >= :from and o.createdAt < :to
+            """)
+    boolean existsInRange(
+            @Param("id") UUID id,
+            @Param("from") Instant from,
+            @Param("to") Instant to
+    );
+
+    default boolean existsPruned(UUID id) {
+        CreatedAtRange range = CreatedAtRange.of(id);
+        return existsInRange(id, range.from(), range.to());
+    }
+
+    /*
+     * One keyset page of (status, createdAt < cutoff), ordered by
+     * (createdAt, id) and starting strictly after the given position.
+     * Served by idx_orders_status_created_id with no OFFSET, so page N
+     * costs the same as page 1.
+     */
+    @Transactional(readOnly = true)
+    @Query("""
+            select new org.aadi.order_service.repo.PendingOrderRef(o.id, o.createdAt)
+              from Order o
+             where o.status = :status
+               and o.createdAt < :cutoff
+               and o.createdAt >= :afterCreatedAt
+               and (o.createdAt > :afterCreatedAt or o.id > :afterId)
+             order by o.createdAt, o.id
+            """)
+    List<PendingOrderRef> findRefsPage(
+            @Param("status") OrderStatus status,
+            @Param("cutoff") Instant cutoff,
+            @Param("afterCreatedAt") Instant afterCreatedAt,
+            @Param("afterId") UUID afterId,
+            Limit limit
+    );
+
+    /*
+     * Walks every (status, since <= createdAt < cutoff) order in chunks of
+     * chunkSize. Each page is its own short read and holds only projections,
+     * so heap use is flat however large the backlog is; the handler is
+     * expected to run its own transaction per chunk. Both bounds are on the
+     * partition key, so only partitions in [since, cutoff) are scanned.
+     */
+    default void forEachRefChunk(
             OrderStatus status,
-            Instant cutoff
+            Instant since,
+            Instant cutoff,
+            int chunkSize,
+            Consumer<List<PendingOrderRef>> handler) {
+
+        Instant afterCreatedAt = since;
+        UUID afterId = new UUID(0L, 0L);
+
+        while (true) {
+            List<PendingOrderRef> chunk = findRefsPage(
+                    status, cutoff, afterCreatedAt, afterId, Limit.of(chunkSize));
+
+            if (chunk.isEmpty()) {
+                return;
+            }
+
+            handler.accept(chunk);
+
+            if (chunk.size() < chunkSize) {
+                return;
+            }
+
+            PendingOrderRef last = chunk.get(chunk.size() - 1);
+            afterCreatedAt = last.createdAt();
+            afterId = last.id();
+        }
+    }
+
+    /*
+     * The updates below are compare-and-set: a row moves only while its
+     * status is still in :sources, so of two racing writers exactly one
+     * wins. Each also reports the status a row moved from (CREATED or
+     * PAYMENT_PENDING) for OrderStats. Postgres has no OLD in RETURNING,
+     * so rows are locked and read in a sub-select first. A writer that
+     * commits in between is waited for, and the locked row is re-checked
+     * against :sources.
+     */
+
+    // ids in :paid become PAID, the rest of :ids PAYMENT_FAILED; redelivery is a no-op
+    @Query(value = """
+            UPDATE orders o
+               SET status = CASE WHEN o.id IN (:paid) THEN 'PAID' ELSE 'PAYMENT_FAILED' END
+              FROM (SELECT id, created_at, status
+                      FROM orders
+                     WHERE id IN (:ids) AND status IN (:sources)
+                       AND created_at >= :from AND created_at < :to
+                       FOR UPDATE) old
+             WHERE o.id = old.id AND o.created_at = old.created_at
+               AND o.created_at >= :from AND o.created_at < :to
+            RETURNING o.id AS id, old.status AS previousStatus, o.status AS status
+            """, nativeQuery = true)
+    List<OrderStatusChange> applyPaymentResults(
+            @Param("ids") Collection<UUID> ids,
+            @Param("paid") Collection<UUID> paid,
+            @Param("sources") Collection<String> sources,
+            @Param("from") Instant from,
+            @Param("to") Instant to
+    );
+
+    @Query(value = """
+            UPDATE orders o SET status = :target
+              FROM (SELECT id, created_at, status
+                      FROM orders
+                     WHERE id IN (:ids) AND status IN (:sources)
+                       AND created_at >= :from AND created_at < :to
+                       FOR UPDATE) old
+             WHERE o.id = old.id AND o.created_at = old.created_at
+               AND o.created_at >= :from AND o.created_at < :to
+            RETURNING o.id AS id, old.status AS previousStatus, o.status AS status
+            """, nativeQuery = true)
+    List<OrderStatusChange> transition(
+            @Param("ids") Collection<UUID> ids,
+            @Param("target") String target,
+            @Param("sources") Collection<String> sources,
+            @Param("from") Instant from,
+            @Param("to") Instant to
     );
-    
-    Page<Order> findByCustomerId(String customerId, Pageable pageable);
 }
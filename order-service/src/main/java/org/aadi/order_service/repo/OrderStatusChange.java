@@ -0,0 +1,7 @@
+package org.aadi.order_service.repo;
+
+import java.util.UUID;
+
+// One row moved by a compare-and-set update: the status it left and the one it entered
+public record OrderStatusChange(UUID id, String previousStatus, String status) {
+}
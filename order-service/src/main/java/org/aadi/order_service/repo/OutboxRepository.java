@@ -3,11 +3,55 @@ package org.aadi.order_service.repo;
 import org.aadi.order_service.domain.OutboxEvent;
 import org.aadi.order_service.domain.OutboxStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
 public interface OutboxRepository extends JpaRepository<OutboxEvent, UUID> {
 
     List<OutboxEvent> findByStatus(OutboxStatus status);
+
+    /*
+     * Lease up to :limit unclaimed (or expired) PENDING rows to :owner.
+     * SKIP LOCKED lets concurrent relays claim disjoint rows instead of
+     * queueing behind each other; lease times use the DB clock so replica
+     * clock skew does not matter.
+     */
+    @Modifying
+    @Query(value = """
+            UPDATE outbox_events
+               SET lease_owner = :owner,
+                   lease_expires_at = now() + make_interval(secs => :leaseSeconds)
+             WHERE id IN (
+                   SELECT id FROM outbox_events
+                    WHERE status = 'PENDING'
+                      AND (lease_expires_at IS NULL OR lease_expires_at < now())
+                    ORDER BY created_at
+                    LIMIT :limit
+                    FOR UPDATE SKIP LOCKED)
+            """, nativeQuery = true)
+    int claimBatch(
+            @Param("owner") String owner,
+            @Param("leaseSeconds") long leaseSeconds,
+            @Param("limit") int limit
+    );
+
+    List<OutboxEvent> findByLeaseOwnerAndStatus(String leaseOwner, OutboxStatus status);
+
+    // Fenced on the claim token: a relay whose lease was taken over cannot overwrite the new owner
+    @Modifying
+    @Query("""
+            update OutboxEvent e
+               set e.status = :status, e.leaseOwner = null, e.leaseExpiresAt = null
+             where e.id in :ids and e.leaseOwner = :owner
+            """)
+    int completeClaimed(
+            @Param("ids") Collection<UUID> ids,
+            @Param("owner") String owner,
+            @Param("status") OutboxStatus status
+    );
 }
@@ -0,0 +1,8 @@
+package org.aadi.order_service.repo;
+
+import java.time.Instant;
+import java.util.UUID;
+
+// Just enough of an order to (re)arm its payment timeout, without loading the entity
+public record PendingOrderRef(UUID id, Instant createdAt) {
+}
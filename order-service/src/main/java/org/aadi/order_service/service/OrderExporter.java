@@ -0,0 +1,208 @@
+package org.aadi.order_service.service;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import org.aadi.order_service.domain.OrderStatus;
+import org.aadi.order_service.shard.Shards;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Full order export for finance, straight from orders to the response.
+ *
+ * Postgres only streams a result set through a cursor inside a
+ * transaction, so the query runs in a read-only one with a fetch size:
+ * the driver holds fetch-size rows at a time and each row is written out
+ * as soon as it is read. Plain JDBC, no entities and no persistence
+ * context, so heap stays flat however many rows there are. Writes block
+ * on the client, which keeps the database from running ahead of the
+ * network.
+ *
+ * A query that fails partway throws out of export() after rows have
+ * already gone out, and OrderExportController aborts the response then.
+ *
+ * There is no ORDER BY, which would make Postgres sort the whole range
+ * before sending the first row. Rows come out partition by partition,
+ * oldest month first, and in insertion order within a month. With
+ * several shards, each is exported in turn, shard 0 first.
+ */
+@Service
+public class OrderExporter {
+
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        public final String contentType;
+        public final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+    }
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final Shards shards;
+
+    public OrderExporter(
+            DataSource dataSource,
+            PlatformTransactionManager transactionManager,
+            Shards shards,
+            @Value("${order.export.fetch-size:1000}") int fetchSize) {
+        // A template of its own, so the fetch size only applies to exports
+        this.jdbc = new JdbcTemplate(dataSource);
+        this.jdbc.setFetchSize(fetchSize);
+        this.tx = new TransactionTemplate(transactionManager);
+        this.tx.setReadOnly(true);
+        this.shards = shards;
+    }
+
+    // Bounds are optional; from is inclusive and to exclusive, as for partitions. Returns the rows written
+    public long export(Format format, OrderStatus status, Instant from, Instant to, OutputStream out) {
+        StringBuilder sql = new StringBuilder(
+                "SELECT id, customer_id, status, created_at FROM orders WHERE true");
+        List<Object> args = new ArrayList<>();
+        if (status != null) {
+            sql.append(" AND status = ?");
+            args.add(status.name());
+        }
+        if (from != null) {
+            sql.append(" AND created_at >= ?");
+            args.add(Timestamp.from(from));
+        }
+        if (to != null) {
+            sql.append(" AND created_at < ?");
+            args.add(Timestamp.from(to));
+        }
+
+        try {
+            RowWriter writer = format == Format.CSV ? new CsvWriter(out) : new NdjsonWriter(out);
+            long[] rows = {0};
+            shards.forEach(shard -> tx.executeWithoutResult(txStatus ->
+                    jdbc.query(sql.toString(), (RowCallbackHandler) rs -> {
+                        try {
+                            writer.write(rs);
+                            rows[0]++;
+                        } catch (IOException ex) {
+                            // Usually the client went away: abandon the cursor and the transaction
+                            throw new UncheckedIOException(ex);
+                        }
+                    }, args.toArray())));
+            writer.finish();
+            return rows[0];
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private interface RowWriter {
+
+        void write(ResultSet rs) throws SQLException, IOException;
+
+        // Flushes but leaves the stream open: the caller ends the response, with its trailer
+        void finish() throws IOException;
+    }
+
+    private static final class NdjsonWriter implements RowWriter {
+
+        private final JsonGenerator json;
+        private boolean empty = true;
+
+        NdjsonWriter(OutputStream out) throws IOException {
+            json = JSON.createGenerator(out, JsonEncoding.UTF8);
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            json.setPrettyPrinter(new MinimalPrettyPrinter("\n"));
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException, IOException {
+            json.writeStartObject();
+            json.writeStringField("id", rs.getString(1));
+            json.writeStringField("customerId", rs.getString(2));
+            json.writeStringField("status", rs.getString(3));
+            json.writeStringField("createdAt", createdAt(rs));
+            json.writeEndObject();
+            empty = false;
+        }
+
+        @Override
+        public void finish() throws IOException {
+            // The pretty printer only separates lines; end the last one too
+            if (!empty) {
+                json.writeRaw('\n');
+            }
+            json.close();
+        }
+    }
+
+    private static final class CsvWriter implements RowWriter {
+
+        private final Writer out;
+
+        CsvWriter(OutputStream out) throws IOException {
+            this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+            this.out.write("id,customer_id,status,created_at\r\n");
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException, IOException {
+            out.write(rs.getString(1));
+            out.write(',');
+            writeField(rs.getString(2));
+            out.write(',');
+            writeField(rs.getString(3));
+            out.write(',');
+            out.write(createdAt(rs));
+            out.write("\r\n");
+        }
+
+        // RFC 4180: quote a field holding a delimiter, quote or line break, doubling its quotes
+        private void writeField(String value) throws IOException {
+            if (value == null) {
+                return;
+            }
+            if (value.chars().noneMatch(c -> c == ',' || c == '"' || c == '\r' || c == '\n')) {
+                out.write(value);
+                return;
+            }
+            out.write('"');
+            out.write(value.replace("\"", "\"\""));
+            out.write('"');
+        }
+
+        @Override
+        public void finish() throws IOException {
+            out.flush();
+        }
+    }
+
+    private static String createdAt(ResultSet rs) throws SQLException {
+        return DateTimeFormatter.ISO_INSTANT.format(rs.getTimestamp(4).toInstant());
+    }
+}
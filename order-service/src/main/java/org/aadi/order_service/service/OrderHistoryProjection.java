@@ -0,0 +1,138 @@
+package org.aadi.order_service.service;
+
+import org.aadi.order_service.shard.Shards;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.UUID;
+
+/*
+ * Keeps the order_history read model in step with orders. A row trigger
+ * on orders upserts the projection on every insert and status change, in
+ * the writer's own transaction, so bulk JPQL updates (timeouts, payment
+ * batches) are covered as well as entity saves.
+ *
+ * Installed before the web server and Kafka listeners start. Orders that
+ * predate the trigger are copied over by schema.sql when orders is
+ * partitioned; an opt-in background backfill re-copies any still missing.
+ * Both happen on every shard; each shard projects its own orders.
+ */
+@Component
+public class OrderHistoryProjection implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderHistoryProjection.class);
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final Shards shards;
+    private final boolean backfillEnabled;
+    private final int backfillBatchSize;
+
+    private volatile boolean running;
+
+    public OrderHistoryProjection(
+            JdbcTemplate jdbc,
+            PlatformTransactionManager transactionManager,
+            Shards shards,
+            @Value("${order.history.backfill.enabled:false}") boolean backfillEnabled,
+            @Value("${order.history.backfill.batch-size:1000}") int backfillBatchSize) {
+        this.jdbc = jdbc;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.shards = shards;
+        this.backfillEnabled = backfillEnabled;
+        this.backfillBatchSize = backfillBatchSize;
+    }
+
+    @Override
+    public void start() {
+        shards.forEach(shard -> installTrigger());
+        running = true;
+
+        if (backfillEnabled) {
+            Thread backfill = new Thread(() -> shards.forEach(this::backfill), "order-history-backfill");
+            backfill.setDaemon(true);
+            backfill.start();
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Ahead of every writer: the web server, Kafka containers and the timeout wheel
+    @Override
+    public int getPhase() {
+        return Integer.MIN_VALUE;
+    }
+
+    private void installTrigger() {
+        tx.executeWithoutResult(status -> {
+            jdbc.execute("SELECT pg_advisory_xact_lock(hashtext('order_history_project'))");
+
+            jdbc.execute("""
+                    CREATE OR REPLACE FUNCTION order_history_project() RETURNS trigger AS $$
+                    BEGIN
+                        INSERT INTO order_history (order_id, customer_id, status, created_at, updated_at)
+                        VALUES (NEW.id, NEW.customer_id, NEW.status, NEW.created_at, now())
+                        ON CONFLICT (order_id) DO UPDATE
+                            SET status = EXCLUDED.status,
+                                updated_at = EXCLUDED.updated_at;
+                        RETURN NULL;
+                    END;
+                    $$ LANGUAGE plpgsql
+                    """);
+
+            jdbc.execute("""
+                    CREATE OR REPLACE TRIGGER orders_history_project
+                    AFTER INSERT OR UPDATE OF status ON orders
+                    FOR EACH ROW EXECUTE FUNCTION order_history_project()
+                    """);
+        });
+    }
+
+    // Copies orders missing from the projection in id order, one short transaction per chunk
+    private void backfill(int shard) {
+        UUID after = new UUID(0L, 0L);
+
+        try {
+            while (running) {
+                UUID from = after;
+                List<UUID> last = tx.execute(status -> jdbc.queryForList("""
+                        WITH chunk AS (
+                            SELECT id, customer_id, status, created_at
+                              FROM orders
+                             WHERE id > ?
+                             ORDER BY id
+                             LIMIT ?
+                        ), copied AS (
+                            INSERT INTO order_history (order_id, customer_id, status, created_at, updated_at)
+                            SELECT id, customer_id, status, created_at, now() FROM chunk
+                            ON CONFLICT (order_id) DO NOTHING
+                        )
+                        SELECT id FROM chunk ORDER BY id DESC LIMIT 1
+                        """, UUID.class, from, backfillBatchSize));
+
+                if (last == null || last.isEmpty()) {
+                    break;
+                }
+                after = last.getFirst();
+            }
+            log.info("Order history backfill of shard {} finished", shard);
+        } catch (RuntimeException ex) {
+            log.error("Order history backfill of shard {} stopped after id {}", shard, after, ex);
+        }
+    }
+}
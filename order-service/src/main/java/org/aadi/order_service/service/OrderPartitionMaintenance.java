@@ -0,0 +1,280 @@
+package org.aadi.order_service.service;
+
+import org.aadi.order_service.domain.OrderStatus;
+import org.aadi.order_service.domain.OrderTransition;
+import org.aadi.order_service.shard.Shards;
+import org.postgresql.PGConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+/*
+ * Hot/cold tiering for the monthly orders partitions.
+ *
+ * Upcoming months are created ahead of time, at startup before any writer
+ * and then nightly. The last hot-months months
+ * (the current one included) stay where they are and are the only ones
+ * the timeout sweep scans; older partitions move to the cold tablespace,
+ * and past retention-months they are archived to gzipped CSV and dropped.
+ * A partition still holding an order that can change status (CREATED,
+ * PAYMENT_PENDING) is left alone until it settles, so anything moved or
+ * archived is effectively read-only. Stale CREATED orders left over from
+ * before PAYMENT_PENDING was set on insert are timed out by
+ * PaymentTimeoutScheduler, so they hold a partition back only until then.
+ *
+ * Each shard is maintained on its own; with several shards the archives
+ * go to a shard-N directory each, as partition names repeat.
+ */
+@Component
+public class OrderPartitionMaintenance implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderPartitionMaintenance.class);
+
+    // Statuses with an outgoing transition, quoted for SQL; derived once from OrderTransition
+    private static final String OPEN_STATUSES = Arrays.stream(OrderStatus.values())
+            .filter(status -> !OrderTransition.targetsFrom(status).isEmpty())
+            .map(status -> "'" + status.name() + "'")
+            .collect(Collectors.joining(", "));
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final Shards shards;
+    private final int monthsAhead;
+    private final int hotMonths;
+    private final String coldTablespace;
+    private final int retentionMonths;
+    private final Path archiveDir;
+
+    private volatile boolean running;
+
+    public OrderPartitionMaintenance(
+            JdbcTemplate jdbc,
+            PlatformTransactionManager transactionManager,
+            Shards shards,
+            @Value("${order.partitions.months-ahead:3}") int monthsAhead,
+            @Value("${order.partitions.hot-months:3}") int hotMonths,
+            @Value("${order.partitions.cold-tablespace:}") String coldTablespace,
+            @Value("${order.partitions.retention-months:0}") int retentionMonths,
+            @Value("${order.partitions.archive.dir:orders-archive}") String archiveDir) {
+        this.jdbc = jdbc;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.shards = shards;
+        this.monthsAhead = monthsAhead;
+        this.hotMonths = Math.max(1, hotMonths);
+        this.coldTablespace = coldTablespace.isBlank() ? null : coldTablespace.trim();
+        this.retentionMonths = retentionMonths;
+        this.archiveDir = Path.of(archiveDir);
+    }
+
+    // Start of the oldest hot month: orders before it are settled or past their timeout long ago
+    public Instant hotSince() {
+        return monthsAgo(hotMonths - 1);
+    }
+
+    @Override
+    public void start() {
+        shards.forEach(shard -> {
+            try {
+                ensurePartitions();
+            } catch (RuntimeException ex) {
+                // Orders go to orders_default meanwhile; the nightly run tries again
+                log.error("Order partitions: could not create partitions on shard {}", shard, ex);
+            }
+        });
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Ahead of every writer: the web server, Kafka containers and the timeout wheel
+    @Override
+    public int getPhase() {
+        return Integer.MIN_VALUE;
+    }
+
+    @Scheduled(cron = "${order.partitions.cron:0 30 3 * * *}", zone = "UTC")
+    public void maintain() {
+        shards.forEach(shard -> {
+            try {
+                maintain(shard);
+            } catch (RuntimeException ex) {
+                log.error("Order partitions: maintenance of shard {} failed", shard, ex);
+            }
+        });
+    }
+
+    private void maintain(int shard) {
+
+        ensurePartitions();
+
+        Instant hotSince = hotSince();
+        Instant retainSince = retentionMonths > 0 ? monthsAgo(retentionMonths) : null;
+
+        for (Partition partition : listBoundedPartitions()) {
+            try {
+                if (retainSince != null && !partition.upperBound().isAfter(retainSince)) {
+                    retire(shard, partition.name());
+                } else if (coldTablespace != null
+                        && !partition.upperBound().isAfter(hotSince)
+                        && !coldTablespace.equals(partition.tablespace())) {
+                    moveToCold(partition.name());
+                }
+            } catch (RuntimeException ex) {
+                log.error("Order partitions: could not tier {}", partition.name(), ex);
+            }
+        }
+    }
+
+    private void ensurePartitions() {
+        jdbc.queryForObject(
+                "SELECT orders_ensure_partitions(?)",
+                String.class,
+                monthsAhead
+        );
+    }
+
+    private record Partition(String name, Instant upperBound, String tablespace) {
+    }
+
+    // Every partition but the default, with the exclusive upper bound of its range
+    private List<Partition> listBoundedPartitions() {
+        return jdbc.query("""
+                SELECT c.relname,
+                       (regexp_match(pg_get_expr(c.relpartbound, c.oid), 'TO \\(''([^'']+)''\\)'))[1]::timestamptz AS upper_bound,
+                       t.spcname
+                  FROM pg_inherits i
+                  JOIN pg_class c ON c.oid = i.inhrelid
+                  LEFT JOIN pg_tablespace t ON t.oid = c.reltablespace
+                 WHERE i.inhparent = 'orders'::regclass
+                 ORDER BY upper_bound
+                """,
+                (rs, i) -> {
+                    Timestamp upper = rs.getTimestamp("upper_bound");
+                    return upper == null
+                            ? null
+                            : new Partition(rs.getString("relname"), upper.toInstant(), rs.getString("spcname"));
+                })
+                .stream()
+                .filter(partition -> partition != null)
+                .toList();
+    }
+
+    private void moveToCold(String partition) {
+        tx.executeWithoutResult(status -> {
+            if (!lockAndCheckSettled(partition)) {
+                return;
+            }
+
+            // SET TABLESPACE on a table leaves its indexes behind, so move them one by one
+            List<String> indexes = jdbc.queryForList(
+                    "SELECT indexrelid::regclass::text FROM pg_index WHERE indrelid = ?::regclass",
+                    String.class,
+                    partition
+            );
+            jdbc.execute("ALTER TABLE " + partition + " SET TABLESPACE " + coldTablespace);
+            for (String index : indexes) {
+                jdbc.execute("ALTER INDEX " + index + " SET TABLESPACE " + coldTablespace);
+            }
+
+            log.info("Order partitions: moved {} to tablespace {}", partition, coldTablespace);
+        });
+    }
+
+    private void retire(int shard, String partition) {
+        tx.executeWithoutResult(status -> {
+            if (!lockAndCheckSettled(partition)) {
+                return;
+            }
+
+            archive(shard, partition);
+
+            // Keys of archived orders may be reused from here on
+            jdbc.update("DELETE FROM order_idempotency_keys k USING " + partition
+                    + " o WHERE k.idempotency_key = o.idempotency_key");
+            jdbc.execute("ALTER TABLE orders DETACH PARTITION " + partition);
+            jdbc.execute("DROP TABLE " + partition);
+
+            log.info("Order partitions: archived and dropped {}", partition);
+        });
+    }
+
+    private boolean lockAndCheckSettled(String partition) {
+        // Only one replica tiers partitions at a time
+        Boolean locked = jdbc.queryForObject(
+                "SELECT pg_try_advisory_xact_lock(hashtext('orders_partition_tiering'))",
+                Boolean.class
+        );
+        if (!Boolean.TRUE.equals(locked)) {
+            return false;
+        }
+
+        // A row without a status has no transition out of it, so it cannot hold a partition back
+        Boolean open = jdbc.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM " + partition
+                        + " WHERE status IN (" + OPEN_STATUSES + "))",
+                Boolean.class
+        );
+        if (Boolean.TRUE.equals(open)) {
+            log.warn("Order partitions: {} still holds unsettled orders, keeping it hot", partition);
+            return false;
+        }
+        return true;
+    }
+
+    private void archive(int shard, String partition) {
+        Path dir = shards.count() == 1 ? archiveDir : archiveDir.resolve("shard-" + shard);
+        Path target = dir.resolve(partition + ".csv.gz");
+
+        jdbc.execute((ConnectionCallback<Long>) connection -> {
+            try {
+                Files.createDirectories(dir);
+                try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(target))) {
+                    return connection.unwrap(PGConnection.class)
+                            .getCopyAPI()
+                            .copyOut("COPY " + partition + " TO STDOUT WITH (FORMAT csv, HEADER)", out);
+                }
+            } catch (IOException ex) {
+                // Abort the retirement rather than drop orders that were not archived
+                throw new IllegalStateException("Failed to archive " + partition, ex);
+            }
+        });
+
+        log.info("Order partitions: archived {} to {}", partition, target);
+    }
+
+    private static Instant monthsAgo(int months) {
+        return LocalDate.now(ZoneOffset.UTC)
+                .withDayOfMonth(1)
+                .minusMonths(months)
+                .atStartOfDay(ZoneOffset.UTC)
+                .toInstant();
+    }
+}
@@ -1,17 +1,36 @@
 package org.aadi.order_service.service;
 
+import org.aadi.event_codec.OrderCreated;
+import org.aadi.order_service.controller.OrderController.BatchOrderResult;
+import org.aadi.order_service.controller.OrderController.OrderHistoryPage;
 import org.aadi.order_service.controller.OrderController.OrderResponse;
 import org.aadi.order_service.domain.Order;
+import org.aadi.order_service.domain.OrderEventType;
+import org.aadi.order_service.domain.OrderHistory;
 import org.aadi.order_service.domain.OutboxEvent;
+import org.aadi.order_service.idempotency.IdempotencyStore;
+import org.aadi.order_service.replica.ReadYourWrites;
+import org.aadi.order_service.repo.OrderHistoryCursor;
+import org.aadi.order_service.repo.OrderHistoryRepository;
 import org.aadi.order_service.repo.OrderRepository;
 import org.aadi.order_service.repo.OutboxRepository;
-import jakarta.transaction.Transactional;
+import org.aadi.order_service.shard.Shards;
+import org.aadi.order_service.stats.OrderStats;
+import org.aadi.order_service.timeout.PaymentTimeoutWheel;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 @Service
@@ -19,61 +38,196 @@ public class OrderService {
 
     private final OrderRepository orderRepository;
     private final OutboxRepository outboxRepository;
-
-    public OrderService(OrderRepository orderRepository,OutboxRepository outboxRepository) {
+    private final OutboxEventFactory outboxEvents;
+    private final OrderHistoryRepository orderHistoryRepository;
+    private final PaymentTimeoutWheel timeoutWheel;
+    private final IdempotencyStore idempotencyStore;
+    private final OrderStats stats;
+    private final ReadYourWrites readYourWrites;
+    private final Shards shards;
+    private final TransactionTemplate transactionTemplate;
+
+    public OrderService(OrderRepository orderRepository,OutboxRepository outboxRepository,OutboxEventFactory outboxEvents,OrderHistoryRepository orderHistoryRepository,
+                        PaymentTimeoutWheel timeoutWheel,IdempotencyStore idempotencyStore,OrderStats stats,
+                        ReadYourWrites readYourWrites,Shards shards,PlatformTransactionManager transactionManager) {
         this.orderRepository=orderRepository;
         this.outboxRepository=outboxRepository;
+        this.outboxEvents=outboxEvents;
+        this.orderHistoryRepository=orderHistoryRepository;
+        this.timeoutWheel=timeoutWheel;
+        this.idempotencyStore=idempotencyStore;
+        this.stats=stats;
+        this.readYourWrites=readYourWrites;
+        this.shards=shards;
+        this.transactionTemplate=new TransactionTemplate(transactionManager);
     }
 
-    @Transactional
+    // Everything a customer's request touches is on the customer's shard
     public UUID createOrder(String customerId,String idemKey) {
+        int shard = shards.ofCustomer(customerId);
+        return shards.on(shard, () -> createOrder(shard, customerId, idemKey));
+    }
+
+    private UUID createOrder(int shard, String customerId, String idemKey) {
 
-        // First-level idempotency (fast path)
-        var existing = orderRepository.findByIdempotencyKey(idemKey);
+        // First-level idempotency: in-memory tiers, DB only on a bloom hit
+        var existing = idempotencyStore.findExisting(idemKey);
         if (existing.isPresent()) {
-            return existing.get().getId();
+            return existing.get();
         }
 
+        UUID orderId = shards.newOrderId(shard);
+        Order order;
+
         try {
-            UUID orderId = UUID.randomUUID();
+            // The insert is flushed at commit, so the race must be caught outside the transaction
+            order = transactionTemplate.execute(status -> {
+                Order created = new Order(orderId, customerId, idemKey);
+                // ORDER_CREATED below requests the payment
+                created.markPaymentPending();
+                orderRepository.save(created);
+
+                OutboxEvent event = outboxEvents.create(
+                        OrderEventType.ORDER_CREATED,
+                        new OrderCreated(orderId, customerId)
+                );
+
+                outboxRepository.save(event);
+                stats.created(1);
+                return created;
+            });
 
-            Order order =
-                    new Order(orderId, customerId, idemKey);
-            orderRepository.save(order);
+        } catch (DataIntegrityViolationException ex) {
+            // Second-level idempotency (race-safe); on the primary, as a replica may not have the winner yet
+            UUID winner = transactionTemplate.execute(status -> orderRepository.findIdByIdempotencyKey(idemKey))
+                    .orElseThrow(() -> ex);
+            idempotencyStore.remember(idemKey, winner);
+            readYourWrites.wrote(customerId);
+            return winner;
+        }
 
-            OutboxEvent event =
-                    new OutboxEvent(
-                            orderId,
-                            "ORDER_CREATED",
-                            buildPayload(orderId, customerId)
-                    );
+        idempotencyStore.remember(idemKey, orderId);
+        readYourWrites.wrote(customerId);
 
-            outboxRepository.save(event);
+        // ORDER_CREATED requests the payment: arm its timeout now the order is visible
+        timeoutWheel.schedule(orderId, order.getCreatedAt());
 
-            return orderId;
+        return orderId;
+    }
 
-        } catch (DataIntegrityViolationException ex) {
-            // Second-level idempotency (race-safe)
-            return orderRepository.findByIdempotencyKey(idemKey)
-                    .map(Order::getId)
-                    .orElseThrow();
+    /*
+     * Creates one order per distinct Idempotency-Key. Existing keys are
+     * resolved in one IN query and the new orders and their outbox rows go
+     * out as JDBC batches in a single transaction. Results follow the input
+     * order; a key repeated within the batch maps to the same order.
+     */
+    public List<BatchOrderResult> createOrders(String customerId, List<String> idemKeys) {
+        int shard = shards.ofCustomer(customerId);
+        return shards.on(shard, () -> createOrders(shard, customerId, idemKeys));
+    }
+
+    private List<BatchOrderResult> createOrders(int shard, String customerId, List<String> idemKeys) {
+
+        List<String> keys = idemKeys.stream().distinct().toList();
+        Map<String, UUID> resolved = new HashMap<>();
+        List<Order> created = List.of();
+
+        for (int attempt = 1; ; attempt++) {
+            // A retry follows a conflict, whose winner only the primary is sure to have
+            (attempt == 1
+                    ? orderRepository.findRefsByIdempotencyKeyIn(keys)
+                    : transactionTemplate.execute(status -> orderRepository.findRefsByIdempotencyKeyIn(keys)))
+                    .forEach(ref -> resolved.put(ref.idempotencyKey(), ref.id()));
+
+            List<Order> fresh = keys.stream()
+                    .filter(key -> !resolved.containsKey(key))
+                    .map(key -> {
+                        Order order = new Order(shards.newOrderId(shard), customerId, key);
+                        order.markPaymentPending();
+                        return order;
+                    })
+                    .toList();
+
+            if (fresh.isEmpty()) {
+                break;
+            }
+
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    orderRepository.saveAll(fresh);
+                    stats.created(fresh.size());
+                    outboxRepository.saveAll(
+                            fresh.stream()
+                                    .map(order -> outboxEvents.create(
+                                            OrderEventType.ORDER_CREATED,
+                                            new OrderCreated(order.getId(), customerId)
+                                    ))
+                                    .toList()
+                    );
+                });
+                created = fresh;
+                break;
+
+            } catch (DataIntegrityViolationException ex) {
+                // A concurrent request took some of these keys: re-resolve and insert the rest once more
+                if (attempt == 2) {
+                    throw ex;
+                }
+            }
         }
 
+        Set<String> createdKeys = new HashSet<>();
+        for (Order order : created) {
+            resolved.put(order.getIdempotencyKey(), order.getId());
+            createdKeys.add(order.getIdempotencyKey());
+            timeoutWheel.schedule(order.getId(), order.getCreatedAt());
+        }
+        resolved.forEach(idempotencyStore::remember);
+        readYourWrites.wrote(customerId);
 
+        List<BatchOrderResult> results = new ArrayList<>(idemKeys.size());
+        for (String key : idemKeys) {
+            results.add(new BatchOrderResult(key, resolved.get(key), createdKeys.remove(key)));
+        }
+        return results;
     }
 
+    // Served from the order_history read model, which has a customer index; orders itself is partitioned by time
     public Page<OrderResponse> getOrdersByCustomerId(String customerId, Pageable pageable) {
-        Page<Order> orders = orderRepository.findByCustomerId(customerId, pageable);
+        Page<OrderHistory> orders = shards.on(shards.ofCustomer(customerId), () -> readYourWrites.read(customerId,
+                () -> orderHistoryRepository.findByCustomerId(customerId, pageable),
+                () -> transactionTemplate.execute(status -> orderHistoryRepository.findByCustomerId(customerId, pageable))));
         return orders.map(order -> new OrderResponse(
-            order.getId(),
+            order.getOrderId(),
             order.getStatus().toString(),
             DateTimeFormatter.ISO_INSTANT.format(order.getCreatedAt())
         ));
     }
 
-    private String buildPayload(UUID orderId, String customerId) {
-        return """
-            {"orderId":"%s","customerId":"%s"}
-        """.formatted(orderId, customerId);
+    // One seek page from the order_history read model, newest first
+    public OrderHistoryPage getOrderHistory(String customerId, OrderHistoryCursor after, int size) {
+        List<OrderHistory> rows = shards.on(shards.ofCustomer(customerId), () -> readYourWrites.read(customerId,
+                () -> orderHistoryRepository.findPage(customerId, after, size + 1),
+                () -> transactionTemplate.execute(status -> orderHistoryRepository.findPage(customerId, after, size + 1))));
+
+        boolean more = rows.size() > size;
+        List<OrderHistory> page = more ? rows.subList(0, size) : rows;
+
+        String next = null;
+        if (more) {
+            OrderHistory last = page.getLast();
+            next = new OrderHistoryCursor(last.getCreatedAt(), last.getOrderId()).encode();
+        }
+
+        return new OrderHistoryPage(
+                page.stream()
+                        .map(row -> new OrderResponse(
+                                row.getOrderId(),
+                                row.getStatus().toString(),
+                                DateTimeFormatter.ISO_INSTANT.format(row.getCreatedAt())
+                        ))
+                        .toList(),
+                next
+        );
     }
 }
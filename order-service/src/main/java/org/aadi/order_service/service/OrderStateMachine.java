@@ -0,0 +1,94 @@
+package org.aadi.order_service.service;
+
+import org.aadi.order_service.domain.OrderStatus;
+import org.aadi.order_service.domain.OrderTransition;
+import org.aadi.order_service.repo.CreatedAtRange;
+import org.aadi.order_service.repo.OrderRepository;
+import org.aadi.order_service.repo.OrderStatusChange;
+import org.aadi.order_service.stats.OrderStats;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/*
+ * Executes OrderTransition against the database as compare-and-set:
+ * a single UPDATE ... WHERE status IN (sources). No entity is loaded;
+ * of two racing writers exactly one matches the row, the other updates
+ * nothing and simply loses. Each statement is
+ * bounded by the CreatedAtRange of its ids, so it touches only the orders
+ * partitions those ids can live in. Every move is reported to
+ * OrderStats with the status it came from.
+ */
+@Service
+public class OrderStateMachine {
+
+    // PAY and FAIL_PAYMENT are applied together by the batch payment consumer
+    private static final List<String> PAYMENT_RESULT_SOURCES =
+            intersection(OrderTransition.PAY, OrderTransition.FAIL_PAYMENT);
+
+    private final OrderRepository orderRepository;
+    private final OrderStats stats;
+
+    public OrderStateMachine(OrderRepository orderRepository, OrderStats stats) {
+        this.orderRepository = orderRepository;
+        this.stats = stats;
+    }
+
+    // True if this call moved the order; false if it was missing or no longer in a source status
+    @Transactional
+    public boolean apply(UUID orderId, OrderTransition transition) {
+        return !applyAll(List.of(orderId), transition).isEmpty();
+    }
+
+    // Ids among orderIds that this call moved
+    @Transactional
+    public List<UUID> applyAll(Collection<UUID> orderIds, OrderTransition transition) {
+        if (orderIds.isEmpty()) {
+            return List.of();
+        }
+        CreatedAtRange range = CreatedAtRange.of(orderIds);
+        List<OrderStatusChange> changes = orderRepository.transition(
+                orderIds,
+                transition.target().name(),
+                transition.sourceNames(),
+                range.from(),
+                range.to()
+        );
+        record(changes);
+        return changes.stream().map(OrderStatusChange::id).toList();
+    }
+
+    // One statement for a batch of mixed payment results; returns orders changed
+    @Transactional
+    public int applyPaymentResults(Collection<UUID> orderIds, Collection<UUID> paid) {
+        CreatedAtRange range = CreatedAtRange.of(orderIds);
+        List<OrderStatusChange> changes = orderRepository.applyPaymentResults(
+                orderIds, paid, PAYMENT_RESULT_SOURCES, range.from(), range.to());
+        record(changes);
+        return changes.size();
+    }
+
+    // Counted after commit, grouped so a batch is one counter update per (from, to) pair
+    private void record(List<OrderStatusChange> changes) {
+        changes.stream()
+                .collect(Collectors.groupingBy(
+                        change -> List.of(change.previousStatus(), change.status()),
+                        Collectors.counting()))
+                .forEach((pair, n) -> stats.moved(
+                        OrderStatus.valueOf(pair.get(0)),
+                        OrderStatus.valueOf(pair.get(1)),
+                        n.intValue()));
+    }
+
+    private static List<String> intersection(OrderTransition a, OrderTransition b) {
+        Set<OrderStatus> common = EnumSet.copyOf(a.sources());
+        common.retainAll(b.sources());
+        return common.stream().map(Enum::name).toList();
+    }
+}
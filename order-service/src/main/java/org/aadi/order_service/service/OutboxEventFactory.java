@@ -0,0 +1,35 @@
+package org.aadi.order_service.service;
+
+import org.aadi.event_codec.DomainEvent;
+import org.aadi.event_codec.EventCodec;
+import org.aadi.event_codec.EventFormat;
+import org.aadi.order_service.domain.OrderEventType;
+import org.aadi.order_service.domain.OutboxEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+
+/*
+ * Encodes events once, when the outbox row is written, in the same format
+ * the producer would use. The relay then ships the stored bytes as they
+ * are, without parsing or re-serialising anything.
+ */
+@Component
+public class OutboxEventFactory {
+
+    private final EventCodec codec = new EventCodec();
+    private final EventFormat format;
+
+    public OutboxEventFactory(@Value("${events.codec.format:binary}") String format) {
+        this.format = EventFormat.valueOf(format.trim().toUpperCase(Locale.ROOT));
+    }
+
+    public OutboxEvent create(OrderEventType type, DomainEvent event) {
+        return new OutboxEvent(
+                event.orderId(),
+                type.name(),
+                codec.encode(event, format)
+        );
+    }
+}
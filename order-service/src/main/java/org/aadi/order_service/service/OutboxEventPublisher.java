@@ -1,53 +1,251 @@
 package org.aadi.order_service.service;
 
+import org.aadi.order_service.domain.OrderEventType;
+import org.aadi.order_service.domain.OutboxEvent;
 import org.aadi.order_service.domain.OutboxStatus;
 import org.aadi.order_service.repo.OutboxRepository;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import jakarta.transaction.Transactional;
+import org.aadi.order_service.shard.Shards;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
+
+/*
+ * Relays outbox_events to Kafka. Each shard has its own relay: its rows
+ * are claimed, sent and marked on that shard alone, and a wake-up for
+ * one shard never waits behind another shard's backlog.
+ */
 @Component
 public class OutboxEventPublisher {
 
+    private static final Logger log = LoggerFactory.getLogger(OutboxEventPublisher.class);
+
     private final OutboxRepository outboxRepository;
+    private final Shards shards;
     private final KafkaTemplate<String,Object> kafka;
     private final String topic;
-    private final ObjectMapper objectMapper;
+    private final String timeoutTopic;
+    private final TransactionTemplate tx;
+    private final int batchSize;
+    private final long sendTimeoutMs;
+    private final long leaseSeconds;
+    private final String instanceId;
+
+    private final Counter sentCounter;
+    private final Counter failedCounter;
+    private final Timer batchTimer;
+    private final AtomicLong lastThroughput = new AtomicLong();
 
-    public OutboxEventPublisher(OutboxRepository outboxRepository, KafkaTemplate<String, Object> kafka, @Value("${order.topic.name}") String topic,ObjectMapper objectMapper) {
+    // Per shard
+    private final ReentrantLock[] relayLocks;
+    private final AtomicBoolean[] relayRequested;
+
+    public OutboxEventPublisher(
+            OutboxRepository outboxRepository,
+            Shards shards,
+            KafkaTemplate<String, Object> kafka,
+            @Value("${order.topic.name}") String topic,
+            @Value("${order.topic.payment-timeout:order.payment.timeout}") String timeoutTopic,
+            PlatformTransactionManager transactionManager,
+            @Value("${outbox.relay.batch-size:500}") int batchSize,
+            @Value("${outbox.relay.send-timeout-ms:10000}") long sendTimeoutMs,
+            @Value("${outbox.relay.lease-seconds:30}") long leaseSeconds,
+            @Value("${outbox.relay.instance-id:}") String instanceId,
+            MeterRegistry meterRegistry) {
         this.outboxRepository = outboxRepository;
+        this.shards = shards;
         this.kafka = kafka;
         this.topic = topic;
-        this.objectMapper=objectMapper;
+        this.timeoutTopic = timeoutTopic;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.sendTimeoutMs = sendTimeoutMs;
+        this.leaseSeconds = leaseSeconds;
+        this.instanceId = instanceId.isBlank()
+                ? UUID.randomUUID().toString()
+                : instanceId;
+
+        this.relayLocks = new ReentrantLock[shards.count()];
+        this.relayRequested = new AtomicBoolean[shards.count()];
+        for (int shard = 0; shard < shards.count(); shard++) {
+            relayLocks[shard] = new ReentrantLock();
+            relayRequested[shard] = new AtomicBoolean();
+        }
+
+        this.sentCounter = Counter.builder("outbox.relay.events")
+                .tag("result", "sent")
+                .description("Outbox events acknowledged by Kafka")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("outbox.relay.events")
+                .tag("result", "failed")
+                .description("Outbox events Kafka rejected")
+                .register(meterRegistry);
+        this.batchTimer = Timer.builder("outbox.relay.batch")
+                .description("Claim, send and mark one outbox batch")
+                .register(meterRegistry);
+        Gauge.builder("outbox.relay.throughput", lastThroughput, AtomicLong::get)
+                .description("Events/sec achieved by the last relay pass")
+                .baseUnit("events/s")
+                .register(meterRegistry);
     }
 
-    @Scheduled(fixedDelay = 3000)
-    @Transactional
+    // The relay's only trigger without LISTEN/NOTIFY; with it, a slower safety net for missed notifications
+    @Scheduled(fixedDelayString = "#{'${outbox.relay.listen.enabled:false}' == 'true'"
+            + " ? '${outbox.relay.listen.poll-interval-ms:30000}' : '${outbox.relay.poll-interval-ms:3000}'}")
     public void publish() {
+        for (int shard = 0; shard < shards.count(); shard++) {
+            wakeUp(shard);
+        }
+    }
 
-        var events = outboxRepository.findByStatus(OutboxStatus.PENDING);
+    /*
+     * Request a relay pass on one shard. Wake-ups that arrive while another
+     * thread is draining that shard are coalesced into one more pass by
+     * that thread, so a row committed mid-drain is never left waiting for
+     * the next poll.
+     */
+    public void wakeUp(int shard) {
+        AtomicBoolean requested = relayRequested[shard];
+        ReentrantLock lock = relayLocks[shard];
+        requested.set(true);
 
-        for (var e : events) {
+        while (requested.get() && lock.tryLock()) {
             try {
-                Object event =
-                        objectMapper.readValue(e.getPayload(), Object.class);
+                while (requested.getAndSet(false)) {
+                    shards.run(shard, this::drain);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void drain() {
+
+        long started = System.nanoTime();
+        long relayed = 0;
+
+        // Drain the backlog in bounded, leased batches
+        int processed;
+        do {
+            processed = batchTimer.record(this::relayBatch);
+            relayed += processed;
+        } while (processed == batchSize);
 
-                kafka.send(
-                        topic,
-                        e.getAggregateId().toString(),
-                        event
-                ).get();
+        if (relayed > 0) {
+            long elapsedNanos = Math.max(1, System.nanoTime() - started);
+            lastThroughput.set(relayed * TimeUnit.SECONDS.toNanos(1) / elapsedNanos);
+        }
+    }
+
+    private int relayBatch() {
 
-                e.setStatus(OutboxStatus.SENT);
+        // ---- Claim: short transaction, row locks are released before any send
+        String claim = instanceId + ":" + UUID.randomUUID();
 
-            } catch (Exception ex) {
-                e.setStatus(OutboxStatus.FAILED);
+        List<OutboxEvent> batch = tx.execute(status -> {
+            int claimed = outboxRepository.claimBatch(claim, leaseSeconds, batchSize);
+            return claimed == 0
+                    ? List.<OutboxEvent>of()
+                    : outboxRepository.findByLeaseOwnerAndStatus(claim, OutboxStatus.PENDING);
+        });
+
+        if (batch == null || batch.isEmpty()) {
+            return 0;
+        }
+
+        // ---- Fire every send first so the producer can pipeline the whole batch
+        List<CompletableFuture<SendResult<String, Object>>> futures =
+                new ArrayList<>(batch.size());
+
+        for (var e : batch) {
+            futures.add(send(e));
+        }
+
+        // ---- Then wait for the batch as a whole
+        try {
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new))
+                    .get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException ex) {
+            // Individual outcomes are inspected below
+        }
+
+        List<UUID> sent = new ArrayList<>(batch.size());
+        List<UUID> failed = new ArrayList<>();
+
+        for (int i = 0; i < batch.size(); i++) {
+            var f = futures.get(i);
+            if (!f.isDone()) {
+                // Still in flight after the timeout: the lease expires and a relay retries it
+                continue;
+            }
+            if (f.isCompletedExceptionally()) {
+                failed.add(batch.get(i).getId());
+            } else {
+                sent.add(batch.get(i).getId());
             }
         }
+
+        // ---- One bulk update per outcome, releasing the lease
+        tx.executeWithoutResult(status -> {
+            if (!sent.isEmpty()) {
+                outboxRepository.completeClaimed(sent, claim, OutboxStatus.SENT);
+            }
+            if (!failed.isEmpty()) {
+                outboxRepository.completeClaimed(failed, claim, OutboxStatus.FAILED);
+            }
+        });
+
+        sentCounter.increment(sent.size());
+        if (!failed.isEmpty()) {
+            failedCounter.increment(failed.size());
+            log.warn("Outbox relay: {} of {} events failed", failed.size(), batch.size());
+        }
+
+        // A timed out batch stops the drain loop until the next scheduled pass
+        return sent.size() + failed.size() == batch.size() ? batch.size() : 0;
+    }
+
+    private CompletableFuture<SendResult<String, Object>> send(OutboxEvent e) {
+        try {
+            // Already encoded when the row was written: ship the bytes as they are
+            return kafka.send(
+                    topicFor(e),
+                    e.getAggregateId().toString(),
+                    e.wirePayload()
+            );
+        } catch (Exception ex) {
+            return CompletableFuture.failedFuture(ex);
+        }
+    }
+
+    private String topicFor(OutboxEvent e) {
+        return OrderEventType.ORDER_PAYMENT_TIMEOUT.name().equals(e.getEventType())
+                ? timeoutTopic
+                : topic;
     }
 }
@@ -0,0 +1,168 @@
+package org.aadi.order_service.service;
+
+import org.aadi.order_service.shard.Shards;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Push-based outbox delivery. An AFTER INSERT trigger on outbox_events
+ * fires pg_notify on commit; this listener holds one dedicated connection
+ * in LISTEN mode per shard and wakes that shard's relay as soon as a
+ * notification arrives. While idle it issues no queries at all.
+ */
+@Component
+@ConditionalOnProperty(name = "outbox.relay.listen.enabled", havingValue = "true")
+public class OutboxNotificationListener implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxNotificationListener.class);
+
+    static final String CHANNEL = "outbox_events";
+
+    private static final int POLL_TIMEOUT_MS = 500;
+    private static final long RECONNECT_BACKOFF_MS = 2000;
+    private static final long RELAY_RETRY_BACKOFF_MS = 2000;
+
+    private final OutboxEventPublisher publisher;
+    private final Shards shards;
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final String username;
+    private final String password;
+
+    private volatile boolean running;
+    private final List<Thread> workers = new ArrayList<>();
+
+    public OutboxNotificationListener(
+            OutboxEventPublisher publisher,
+            Shards shards,
+            JdbcTemplate jdbc,
+            PlatformTransactionManager transactionManager,
+            @Value("${spring.datasource.username}") String username,
+            @Value("${spring.datasource.password}") String password) {
+        this.publisher = publisher;
+        this.shards = shards;
+        this.jdbc = jdbc;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.username = username;
+        this.password = password;
+    }
+
+    @Override
+    public void start() {
+        shards.forEach(shard -> installTrigger());
+
+        running = true;
+        for (int shard = 0; shard < shards.count(); shard++) {
+            int s = shard;
+            Thread worker = new Thread(() -> listen(s), "outbox-listener-" + s);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        workers.forEach(Thread::interrupt);
+        workers.clear();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void installTrigger() {
+        tx.executeWithoutResult(status -> {
+            // Serialise replicas starting together; concurrent CREATE OR REPLACE can conflict
+            jdbc.execute("SELECT pg_advisory_xact_lock(hashtext('outbox_events_notify'))");
+
+            jdbc.execute("""
+                    CREATE OR REPLACE FUNCTION outbox_events_notify() RETURNS trigger AS $$
+                    BEGIN
+                        PERFORM pg_notify('%s', '');
+                        RETURN NULL;
+                    END;
+                    $$ LANGUAGE plpgsql
+                    """.formatted(CHANNEL));
+
+            // Statement level: a multi-row insert raises one notification, not one per row
+            jdbc.execute("""
+                    CREATE OR REPLACE TRIGGER outbox_events_notify
+                    AFTER INSERT ON outbox_events
+                    FOR EACH STATEMENT EXECUTE FUNCTION outbox_events_notify()
+                    """);
+        });
+    }
+
+    private void listen(int shard) {
+
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(shards.url(shard), username, password)) {
+
+                try (Statement st = connection.createStatement()) {
+                    st.execute("LISTEN " + CHANNEL);
+                }
+
+                PGConnection pg = connection.unwrap(PGConnection.class);
+
+                // Catch up on anything committed while we were not listening
+                wakeUp(shard);
+
+                while (running) {
+                    PGNotification[] notifications = pg.getNotifications(POLL_TIMEOUT_MS);
+                    if (notifications != null && notifications.length > 0) {
+                        wakeUp(shard);
+                    }
+                }
+
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (SQLException | RuntimeException ex) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Outbox LISTEN connection to shard {} lost, reconnecting: {}", shard, ex.getMessage());
+                try {
+                    Thread.sleep(RECONNECT_BACKOFF_MS);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /*
+     * A failed relay pass keeps the LISTEN connection. It backs off before
+     * the next pass instead, so a relay that keeps failing is retried every
+     * RELAY_RETRY_BACKOFF_MS, not once per notification or reconnect.
+     * Notifications that arrive meanwhile wait on the connection.
+     */
+    private void wakeUp(int shard) throws InterruptedException {
+        try {
+            publisher.wakeUp(shard);
+        } catch (RuntimeException ex) {
+            log.error("Outbox relay on shard {} failed after notification", shard, ex);
+            Thread.sleep(RELAY_RETRY_BACKOFF_MS);
+        }
+    }
+}
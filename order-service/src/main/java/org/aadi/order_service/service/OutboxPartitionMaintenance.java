@@ -0,0 +1,221 @@
+package org.aadi.order_service.service;
+
+import org.aadi.order_service.shard.Shards;
+import org.postgresql.PGConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/*
+ * Keeps the daily outbox_events partitions rolling: creates upcoming days
+ * ahead of time, at startup before any writer and then hourly, and drops
+ * days past retention once no row in them is still PENDING, optionally
+ * archiving them to gzipped CSV first. Dropping a whole partition is O(1)
+ * and leaves no dead tuples or index bloat behind.
+ *
+ * FAILED rows are never retried, so they do not hold a day back: they are
+ * copied to outbox_events_dead in the same transaction that drops it.
+ *
+ * Each shard is maintained on its own; with several shards the archives
+ * go to a shard-N directory each, as partition names repeat.
+ */
+@Component
+public class OutboxPartitionMaintenance implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxPartitionMaintenance.class);
+
+    private static final String PARTITION_PREFIX = "outbox_events_p";
+    private static final DateTimeFormatter PARTITION_DAY = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final Shards shards;
+    private final int retentionDays;
+    private final int partitionsAhead;
+    private final boolean archiveEnabled;
+    private final Path archiveDir;
+
+    private volatile boolean running;
+
+    public OutboxPartitionMaintenance(
+            JdbcTemplate jdbc,
+            PlatformTransactionManager transactionManager,
+            Shards shards,
+            @Value("${outbox.retention.days:7}") int retentionDays,
+            @Value("${outbox.retention.partitions-ahead:7}") int partitionsAhead,
+            @Value("${outbox.retention.archive.enabled:false}") boolean archiveEnabled,
+            @Value("${outbox.retention.archive.dir:outbox-archive}") String archiveDir) {
+        this.jdbc = jdbc;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.shards = shards;
+        this.retentionDays = retentionDays;
+        this.partitionsAhead = partitionsAhead;
+        this.archiveEnabled = archiveEnabled;
+        this.archiveDir = Path.of(archiveDir);
+    }
+
+    @Override
+    public void start() {
+        shards.forEach(shard -> {
+            try {
+                ensurePartitions();
+            } catch (RuntimeException ex) {
+                // Rows go to outbox_events_default meanwhile; the hourly run tries again
+                log.error("Outbox retention: could not create partitions on shard {}", shard, ex);
+            }
+        });
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Ahead of every writer: the web server, Kafka containers and the timeout wheel
+    @Override
+    public int getPhase() {
+        return Integer.MIN_VALUE;
+    }
+
+    @Scheduled(cron = "${outbox.retention.cron:0 15 * * * *}", zone = "UTC")
+    public void maintain() {
+        shards.forEach(shard -> {
+            try {
+                maintain(shard);
+            } catch (RuntimeException ex) {
+                log.error("Outbox retention: maintenance of shard {} failed", shard, ex);
+            }
+        });
+    }
+
+    private void maintain(int shard) {
+
+        ensurePartitions();
+
+        LocalDate oldestKept = LocalDate.now(ZoneOffset.UTC).minusDays(retentionDays);
+
+        for (String partition : listDailyPartitions()) {
+            LocalDate day = LocalDate.parse(
+                    partition.substring(PARTITION_PREFIX.length()),
+                    PARTITION_DAY
+            );
+            if (day.isBefore(oldestKept)) {
+                try {
+                    retire(shard, partition);
+                } catch (RuntimeException ex) {
+                    log.error("Outbox retention: could not retire {}", partition, ex);
+                }
+            }
+        }
+    }
+
+    private void ensurePartitions() {
+        jdbc.queryForObject(
+                "SELECT outbox_events_ensure_partitions(?)",
+                String.class,
+                partitionsAhead
+        );
+    }
+
+    private List<String> listDailyPartitions() {
+        return jdbc.queryForList("""
+                SELECT c.relname
+                  FROM pg_inherits i
+                  JOIN pg_class c ON c.oid = i.inhrelid
+                 WHERE i.inhparent = 'outbox_events'::regclass
+                   AND c.relname ~ '^outbox_events_p[0-9]{8}$'
+                 ORDER BY c.relname
+                """, String.class);
+    }
+
+    private void retire(int shard, String partition) {
+        tx.executeWithoutResult(status -> {
+
+            // Only one replica retires partitions at a time
+            Boolean locked = jdbc.queryForObject(
+                    "SELECT pg_try_advisory_xact_lock(hashtext('outbox_events_retention'))",
+                    Boolean.class
+            );
+            if (!Boolean.TRUE.equals(locked)) {
+                return;
+            }
+
+            // Anything not SENT or FAILED the relay may still send
+            Boolean pending = jdbc.queryForObject(
+                    "SELECT EXISTS (SELECT 1 FROM " + partition
+                            + " WHERE status IS NULL OR status NOT IN ('SENT', 'FAILED'))",
+                    Boolean.class
+            );
+            if (Boolean.TRUE.equals(pending)) {
+                log.warn("Outbox retention: {} still holds unsent events, keeping it", partition);
+                return;
+            }
+
+            int dead = jdbc.update("""
+                    INSERT INTO outbox_events_dead
+                           (id, aggregate_type, event_type, aggregate_id, payload, payload_bytes, created_at, dead_lettered_at)
+                    SELECT id, aggregate_type, event_type, aggregate_id, payload, payload_bytes, created_at, now()
+                      FROM %s
+                     WHERE status = 'FAILED'
+                    ON CONFLICT (id) DO NOTHING
+                    """.formatted(partition));
+
+            if (archiveEnabled) {
+                archive(shard, partition);
+            }
+
+            jdbc.execute("ALTER TABLE outbox_events DETACH PARTITION " + partition);
+            jdbc.execute("DROP TABLE " + partition);
+
+            if (dead > 0) {
+                log.warn("Outbox retention: dropped {}, {} FAILED events moved to outbox_events_dead", partition, dead);
+            } else {
+                log.info("Outbox retention: dropped {}", partition);
+            }
+        });
+    }
+
+    private void archive(int shard, String partition) {
+        Path dir = shards.count() == 1 ? archiveDir : archiveDir.resolve("shard-" + shard);
+        Path target = dir.resolve(partition + ".csv.gz");
+
+        jdbc.execute((ConnectionCallback<Long>) connection -> {
+            try {
+                Files.createDirectories(dir);
+                try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(target))) {
+                    return connection.unwrap(PGConnection.class)
+                            .getCopyAPI()
+                            .copyOut("COPY " + partition + " TO STDOUT WITH (FORMAT csv, HEADER)", out);
+                }
+            } catch (IOException ex) {
+                // Abort the retirement rather than drop data that was not archived
+                throw new IllegalStateException("Failed to archive " + partition, ex);
+            }
+        });
+
+        log.info("Outbox retention: archived {} to {}", partition, target);
+    }
+}
@@ -1,62 +1,74 @@
 package org.aadi.order_service.service;
 
-import org.aadi.order_service.domain.Order;
-import org.aadi.order_service.domain.OrderEventType;
 import org.aadi.order_service.domain.OrderStatus;
-import org.aadi.order_service.domain.OutboxEvent;
 import org.aadi.order_service.repo.OrderRepository;
-import org.aadi.order_service.repo.OutboxRepository;
+import org.aadi.order_service.repo.PendingOrderRef;
+import org.aadi.order_service.shard.Shards;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Duration;
 import java.time.Instant;
-import java.util.List;
-import java.util.Map;
 
+/*
+ * Reconciliation pass behind PaymentTimeoutWheel: catches timeouts the
+ * wheel never saw, so it can run far less often than the timeout itself.
+ */
 @Component
 public class PaymentTimeoutScheduler {
 
-    private static final Duration PAYMENT_TIMEOUT = Duration.ofMinutes(5);
-
     private final OrderRepository orderRepo;
-    private final OutboxRepository outboxRepo;
+    private final PaymentTimeoutService timeoutService;
+    private final OrderPartitionMaintenance partitions;
+    private final Shards shards;
+    private final Duration timeout;
+    private final int batchSize;
 
     public PaymentTimeoutScheduler(
             OrderRepository orderRepo,
-            OutboxRepository outboxRepo
+            PaymentTimeoutService timeoutService,
+            OrderPartitionMaintenance partitions,
+            Shards shards,
+            @Value("${payment.timeout.duration:5m}") Duration timeout,
+            @Value("${payment.timeout.wheel.batch-size:100}") int batchSize
     ) {
         this.orderRepo = orderRepo;
-        this.outboxRepo = outboxRepo;
+        this.timeoutService = timeoutService;
+        this.partitions = partitions;
+        this.shards = shards;
+        this.timeout = timeout;
+        this.batchSize = batchSize;
     }
 
-    @Scheduled(fixedDelay = 60000) // every minute
-    @Transactional
+    @Scheduled(fixedDelayString = "${payment.timeout.reconcile-interval-ms:600000}")
     public void detectTimedOutPayments() {
 
-        Instant cutoff = Instant.now().minus(PAYMENT_TIMEOUT);
-
-        List<Order> timedOutOrders =
-                orderRepo.findByStatusAndCreatedAtBefore(
-                        OrderStatus.PAYMENT_PENDING,
-                        cutoff
-                );
-
-        for (Order order : timedOutOrders) {
-
-            order.markPaymentTimeout();
-
-            outboxRepo.save(
-                    OutboxEvent.create(
-                            order.getId(),
-                            OrderEventType.ORDER_PAYMENT_TIMEOUT,
-                            Map.of(
-                                    "orderId", order.getId().toString(),
-                                    "reason", "PAYMENT_TIMEOUT"
-                            )
-                    )
-            );
-        }
+        Instant cutoff = Instant.now().minus(timeout);
+
+        // Keyset chunks, one short transaction each: heap stays flat after an outage.
+        // Only hot partitions are scanned; older ones hold no pending orders. One shard at a time.
+        shards.forEach(shard -> orderRepo.forEachRefChunk(
+                OrderStatus.PAYMENT_PENDING,
+                partitions.hotSince(),
+                cutoff,
+                batchSize,
+                chunk -> timeoutService.expire(
+                        chunk.stream().map(PendingOrderRef::id).toList()
+                )
+        ));
+
+        // CREATED orders from before PAYMENT_PENDING was set on insert, in any partition: left
+        // alone they would keep theirs from ever going cold. New orders never sit in CREATED,
+        // so once these are gone this is one empty index probe per partition.
+        shards.forEach(shard -> orderRepo.forEachRefChunk(
+                OrderStatus.CREATED,
+                Instant.EPOCH,
+                cutoff,
+                batchSize,
+                chunk -> timeoutService.expire(
+                        chunk.stream().map(PendingOrderRef::id).toList()
+                )
+        ));
     }
 }
@@ -0,0 +1,62 @@
+package org.aadi.order_service.service;
+
+import org.aadi.event_codec.OrderPaymentTimeout;
+import org.aadi.order_service.domain.OrderEventType;
+import org.aadi.order_service.domain.OrderTransition;
+import org.aadi.order_service.repo.OutboxRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Service
+public class PaymentTimeoutService {
+
+    private final OrderStateMachine stateMachine;
+    private final OutboxRepository outboxRepo;
+    private final OutboxEventFactory outboxEvents;
+
+    public PaymentTimeoutService(
+            OrderStateMachine stateMachine,
+            OutboxRepository outboxRepo,
+            OutboxEventFactory outboxEvents
+    ) {
+        this.stateMachine = stateMachine;
+        this.outboxRepo = outboxRepo;
+        this.outboxEvents = outboxEvents;
+    }
+
+    /*
+     * Times out whichever of the given orders are still awaiting payment and
+     * writes their ORDER_PAYMENT_TIMEOUT outbox rows, all in one short
+     * transaction. Orders that were paid or failed in the meantime are
+     * skipped, so callers may pass stale ids. Returns the number timed out.
+     */
+    @Transactional
+    public int expire(Collection<UUID> orderIds) {
+
+        if (orderIds.isEmpty()) {
+            return 0;
+        }
+
+        // Compare-and-set: only ids still awaiting payment come back, so a racing payment result wins cleanly
+        List<UUID> pending = stateMachine.applyAll(orderIds, OrderTransition.TIME_OUT);
+
+        if (pending.isEmpty()) {
+            return 0;
+        }
+
+        outboxRepo.saveAll(
+                pending.stream()
+                        .map(orderId -> outboxEvents.create(
+                                OrderEventType.ORDER_PAYMENT_TIMEOUT,
+                                new OrderPaymentTimeout(orderId, "PAYMENT_TIMEOUT")
+                        ))
+                        .toList()
+        );
+
+        return pending.size();
+    }
+}
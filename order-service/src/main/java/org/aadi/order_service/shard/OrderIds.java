@@ -0,0 +1,44 @@
+package org.aadi.order_service.shard;
+
+import org.aadi.order_service.domain.UuidV7;
+
+import java.util.UUID;
+
+/*
+ * Order ids that name their shard, so an order id alone is enough to
+ * route a lookup. The layout is UuidV7's, so ids stay time-ordered and
+ * CreatedAtRange still reads their timestamp, except for two things:
+ *
+ *   - the version is 8 (RFC 9562 custom), which tells them apart from
+ *     plain v7 ids minted before sharding, all of which live on shard 0
+ *   - the top 8 of the 62 random bits hold the shard
+ */
+public final class OrderIds {
+
+    public static final int MAX_SHARDS = 256;
+
+    private static final int SHARD_SHIFT = 54;
+    private static final long SHARD_MASK = 0xFFL << SHARD_SHIFT;
+    private static final long VERSION_MASK = 0xF000L;
+    private static final long VERSION_8 = 0x8000L;
+
+    private OrderIds() {
+    }
+
+    public static UUID next(int shard) {
+        if (shard < 0 || shard >= MAX_SHARDS) {
+            throw new IllegalArgumentException("Shard out of range: " + shard);
+        }
+        UUID id = UuidV7.next();
+        long msb = id.getMostSignificantBits() & ~VERSION_MASK | VERSION_8;
+        long lsb = id.getLeastSignificantBits() & ~SHARD_MASK | (long) shard << SHARD_SHIFT;
+        return new UUID(msb, lsb);
+    }
+
+    // The shard an order id was minted for; ids from before sharding belong to shard 0
+    public static int shard(UUID id) {
+        return id.version() == 8
+                ? (int) ((id.getLeastSignificantBits() & SHARD_MASK) >>> SHARD_SHIFT)
+                : Shards.HOME;
+    }
+}
@@ -0,0 +1,43 @@
+package org.aadi.order_service.shard;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Connections from the pool of the shard bound by Shards, or shard 0's
+ * when none is. Spring ties a connection to a transaction when it starts,
+ * so the shard has to be bound before that; Shards.on refuses to switch
+ * inside one.
+ */
+class ShardRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+    private final List<HikariDataSource> pools;
+
+    ShardRoutingDataSource(List<HikariDataSource> pools) {
+        this.pools = pools;
+
+        Map<Object, Object> targets = new HashMap<>();
+        for (int shard = 0; shard < pools.size(); shard++) {
+            targets.put(shard, pools.get(shard));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(pools.get(Shards.HOME));
+        // A shard that is bound but not configured is an error, never shard 0 in disguise
+        setLenientFallback(false);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return Shards.current();
+    }
+
+    // Shard 0's pool is a bean of its own and closed by the context
+    @Override
+    public void close() {
+        pools.subList(1, pools.size()).forEach(HikariDataSource::close);
+    }
+}
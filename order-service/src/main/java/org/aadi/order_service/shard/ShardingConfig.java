@@ -0,0 +1,87 @@
+package org.aadi.order_service.shard;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.autoconfigure.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.DatabasePopulatorUtils;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Sharded order data, opt-in with order.shards.enabled.
+ *
+ * Shard 0 is the spring.datasource database; order.shards.urls adds
+ * shards 1..n. Every shard gets a Hikari pool with shard 0's settings and
+ * credentials. JPA and JdbcTemplate see one ShardRoutingDataSource over
+ * them.
+ *
+ * spring.sql.init and Hibernate only ever talk to shard 0. schema.sql
+ * holds the complete schema, so it is applied to the other shards here,
+ * before anything can use them.
+ *
+ * Read replicas (ReadReplicaConfig) replace the same DataSource and cannot
+ * be combined with shards; enabling both fails startup here.
+ */
+@Configuration
+@ConditionalOnProperty(name = "order.shards.enabled", havingValue = "true")
+public class ShardingConfig {
+
+    public ShardingConfig(@Value("${order.datasource.replicas.enabled:false}") boolean replicasEnabled) {
+        if (replicasEnabled) {
+            throw new IllegalStateException(
+                    "order.shards.enabled and order.datasource.replicas.enabled are exclusive");
+        }
+    }
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    HikariDataSource homeShardDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        dataSource.setPoolName("shard-0");
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    ShardRoutingDataSource dataSource(
+            HikariDataSource homeShardDataSource,
+            Shards shards,
+            @Value("${spring.sql.init.mode:embedded}") String sqlInitMode,
+            @Value("${spring.sql.init.separator:;}") String sqlSeparator) {
+
+        if (shards.count() < 2) {
+            throw new IllegalStateException("order.shards.enabled is true but order.shards.urls is empty");
+        }
+
+        List<HikariDataSource> pools = new ArrayList<>();
+        pools.add(homeShardDataSource);
+
+        for (int shard = 1; shard < shards.count(); shard++) {
+            HikariConfig config = new HikariConfig();
+            homeShardDataSource.copyStateTo(config);
+            config.setJdbcUrl(shards.url(shard));
+            config.setPoolName("shard-" + shard);
+
+            HikariDataSource pool = new HikariDataSource(config);
+            if (!"never".equalsIgnoreCase(sqlInitMode)) {
+                ResourceDatabasePopulator schema = new ResourceDatabasePopulator(new ClassPathResource("schema.sql"));
+                schema.setSeparator(sqlSeparator);
+                DatabasePopulatorUtils.execute(schema, pool);
+            }
+            pools.add(pool);
+        }
+
+        return new ShardRoutingDataSource(pools);
+    }
+}
@@ -0,0 +1,147 @@
+package org.aadi.order_service.shard;
+
+import org.aadi.order_service.domain.UuidV7;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+import java.util.zip.CRC32C;
+
+/*
+ * Customer-hash sharding of order data over several Postgres databases.
+ *
+ * A customer's orders, outbox rows and history all live on shard
+ * crc32c(customerId) mod count, so each request writes to one database
+ * in one local transaction. Order ids carry their shard (OrderIds), so
+ * code that holds only an order id (payment results, timeouts) goes
+ * straight to the right database, without asking the others.
+ *
+ * Entry points bind a shard to the thread with on/run. Repositories and
+ * services below them simply work on the current shard, because
+ * ShardRoutingDataSource picks the database when the transaction takes
+ * its connection. Shard 0 is the spring.datasource database: orders from
+ * before sharding stay there, and work bound to no shard (startup,
+ * order_status_counts) uses it.
+ *
+ * The shard count is part of the customer mapping. Changing it once
+ * orders exist moves customers to other shards, so it needs a migration.
+ * With sharding off there is one shard and all of this is a pass-through.
+ */
+@Component
+public class Shards {
+
+    public static final int HOME = 0;
+
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private final List<String> urls;
+
+    public Shards(
+            @Value("${order.shards.enabled:false}") boolean enabled,
+            @Value("${spring.datasource.url}") String homeUrl,
+            @Value("${order.shards.urls:}") List<String> extraUrls) {
+        List<String> all = new ArrayList<>();
+        all.add(homeUrl);
+        if (enabled) {
+            extraUrls.stream()
+                    .filter(url -> !url.isBlank())
+                    .map(String::trim)
+                    .forEach(all::add);
+        }
+        if (all.size() > OrderIds.MAX_SHARDS) {
+            throw new IllegalStateException("At most " + OrderIds.MAX_SHARDS + " shards are supported");
+        }
+        this.urls = List.copyOf(all);
+    }
+
+    public int count() {
+        return urls.size();
+    }
+
+    // JDBC URL of a shard, for connections outside its pool
+    public String url(int shard) {
+        return urls.get(shard);
+    }
+
+    public int ofCustomer(String customerId) {
+        if (urls.size() == 1) {
+            return HOME;
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(customerId.getBytes(StandardCharsets.UTF_8));
+        return (int) (crc.getValue() % urls.size());
+    }
+
+    public int ofOrder(UUID orderId) {
+        int shard = OrderIds.shard(orderId);
+        if (shard >= urls.size()) {
+            throw new IllegalStateException(
+                    "Order " + orderId + " is on shard " + shard + " but " + urls.size() + " are configured");
+        }
+        return shard;
+    }
+
+    // Plain v7 ids while there is one shard, so nothing changes until sharding is switched on
+    public UUID newOrderId(int shard) {
+        return urls.size() == 1 ? UuidV7.next() : OrderIds.next(shard);
+    }
+
+    // Order ids grouped by shard, in shard order
+    public Map<Integer, List<UUID>> byShard(Collection<UUID> orderIds) {
+        Map<Integer, List<UUID>> groups = new TreeMap<>();
+        for (UUID id : orderIds) {
+            groups.computeIfAbsent(ofOrder(id), shard -> new ArrayList<>()).add(id);
+        }
+        return groups;
+    }
+
+    public <T> T on(int shard, Supplier<T> work) {
+        Integer previous = CURRENT.get();
+        int active = previous == null ? HOME : previous;
+
+        // The transaction already holds a connection to `active`; switching now would go unnoticed
+        if (shard != active && TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException(
+                    "Cannot switch to shard " + shard + " inside a transaction on shard " + active);
+        }
+
+        CURRENT.set(shard);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    public void run(int shard, Runnable work) {
+        on(shard, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    // Runs work once per shard, in turn, each bound to its shard
+    public void forEach(IntConsumer work) {
+        for (int shard = 0; shard < urls.size(); shard++) {
+            int s = shard;
+            run(s, () -> work.accept(s));
+        }
+    }
+
+    static Integer current() {
+        return CURRENT.get();
+    }
+}
@@ -0,0 +1,245 @@
+package org.aadi.order_service.stats;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aadi.order_service.domain.OrderStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Live order counts without touching the orders table.
+ *
+ * Every committed insert and status change is added to striped counters:
+ * the net change per OrderStatus since the last checkpoint, and per-minute
+ * windows of what happened (created, paid, failed, timed out, cancelled).
+ * Reads are a handful of LongAdder sums.
+ *
+ * The status counts are cluster-wide. Each checkpoint adds this replica's
+ * deltas to order_status_counts (seeded once by schema.sql with a single
+ * count(*)) and reads the totals back, so a count is the stored total as
+ * of the last checkpoint plus what this replica did since. Totals survive
+ * restarts and every replica converges within one checkpoint interval.
+ * With sharding, order_status_counts on shard 0 holds the totals for all
+ * shards (the others start empty, so the one seed count is still right).
+ * The windows are per replica and are lost on restart; Micrometer sums
+ * them across replicas.
+ */
+@Component
+public class OrderStats implements SmartLifecycle {
+
+    public enum Activity {
+        CREATED, PAID, FAILED, TIMED_OUT, CANCELLED;
+
+        // The activity a move into `status` counts as, or null for none
+        static Activity entering(OrderStatus status) {
+            return switch (status) {
+                case PAID -> PAID;
+                case PAYMENT_FAILED -> FAILED;
+                case PAYMENT_TIMEOUT -> TIMED_OUT;
+                case CANCELLED -> CANCELLED;
+                case CREATED, PAYMENT_PENDING -> null;
+            };
+        }
+    }
+
+    public static final int WINDOW_MINUTES = 60;
+
+    private static final Logger log = LoggerFactory.getLogger(OrderStats.class);
+
+    private final JdbcTemplate jdbc;
+
+    // Net change per status not yet added to order_status_counts
+    private final Map<OrderStatus, LongAdder> pending = new EnumMap<>(OrderStatus.class);
+    private final Map<Activity, SlidingWindowCounter> windows = new EnumMap<>(Activity.class);
+    private volatile Map<OrderStatus, Long> checkpointed = Collections.emptyMap();
+
+    private volatile boolean running;
+
+    public OrderStats(JdbcTemplate jdbc, MeterRegistry meterRegistry) {
+        this.jdbc = jdbc;
+
+        for (OrderStatus status : OrderStatus.values()) {
+            pending.put(status, new LongAdder());
+            Gauge.builder("orders.status.count", this, stats -> stats.count(status))
+                    .tag("status", status.name())
+                    .description("Orders currently in this status, cluster-wide as of the last checkpoint")
+                    .register(meterRegistry);
+        }
+        for (Activity activity : Activity.values()) {
+            SlidingWindowCounter window = new SlidingWindowCounter(WINDOW_MINUTES);
+            windows.put(activity, window);
+            FunctionCounter.builder("orders.activity", window, SlidingWindowCounter::total)
+                    .tag("activity", activity.name().toLowerCase())
+                    .description("Orders created or moved into a final status by this replica")
+                    .register(meterRegistry);
+        }
+    }
+
+    // Orders inserted as PAYMENT_PENDING
+    public void created(int n) {
+        afterCommit(() -> {
+            pending.get(OrderStatus.PAYMENT_PENDING).add(n);
+            windows.get(Activity.CREATED).add(minute(), n);
+        });
+    }
+
+    public void moved(OrderStatus from, OrderStatus to, int n) {
+        afterCommit(() -> {
+            pending.get(from).add(-n);
+            pending.get(to).add(n);
+
+            Activity activity = Activity.entering(to);
+            if (activity != null) {
+                windows.get(activity).add(minute(), n);
+            }
+        });
+    }
+
+    public long count(OrderStatus status) {
+        return checkpointed.getOrDefault(status, 0L) + pending.get(status).sum();
+    }
+
+    public Map<OrderStatus, Long> counts() {
+        Map<OrderStatus, Long> counts = new EnumMap<>(OrderStatus.class);
+        for (OrderStatus status : OrderStatus.values()) {
+            counts.put(status, count(status));
+        }
+        return counts;
+    }
+
+    // This replica's activity in the last `minutes` minutes
+    public Map<Activity, Long> recent(int minutes) {
+        long now = minute();
+        Map<Activity, Long> recent = new EnumMap<>(Activity.class);
+        windows.forEach((activity, window) -> recent.put(activity, window.sum(now, minutes)));
+        return recent;
+    }
+
+    // Per-minute series, oldest first, for the last `minutes` minutes
+    public Map<Activity, long[]> perMinute(int minutes) {
+        long now = minute();
+        Map<Activity, long[]> series = new LinkedHashMap<>();
+        windows.forEach((activity, window) -> series.put(activity, window.perMinute(now, minutes)));
+        return series;
+    }
+
+    @Scheduled(
+            fixedDelayString = "${order.stats.checkpoint-interval-ms:15000}",
+            initialDelayString = "${order.stats.checkpoint-interval-ms:15000}")
+    public void checkpoint() {
+        Map<OrderStatus, Long> deltas = new EnumMap<>(OrderStatus.class);
+        pending.forEach((status, adder) -> {
+            long delta = adder.sumThenReset();
+            if (delta != 0) {
+                deltas.put(status, delta);
+            }
+        });
+        // Readers keep seeing the same counts while the deltas are on their way
+        checkpointed = plus(checkpointed, deltas, 1);
+
+        try {
+            if (!deltas.isEmpty()) {
+                List<Object[]> rows = new ArrayList<>();
+                deltas.forEach((status, delta) -> rows.add(new Object[]{status.name(), delta}));
+                jdbc.batchUpdate("""
+                        INSERT INTO order_status_counts (status, count) VALUES (?, ?)
+                        ON CONFLICT (status) DO UPDATE SET count = order_status_counts.count + EXCLUDED.count
+                        """, rows);
+            }
+        } catch (RuntimeException ex) {
+            // Keep the deltas for the next checkpoint rather than lose them
+            deltas.forEach((status, delta) -> pending.get(status).add(delta));
+            checkpointed = plus(checkpointed, deltas, -1);
+            log.warn("Order stats checkpoint failed, retrying next interval", ex);
+            return;
+        }
+
+        reload();
+    }
+
+    private void reload() {
+        try {
+            Map<OrderStatus, Long> totals = new EnumMap<>(OrderStatus.class);
+            jdbc.query("SELECT status, count FROM order_status_counts", (RowCallbackHandler) rs -> {
+                try {
+                    totals.put(OrderStatus.valueOf(rs.getString(1)), rs.getLong(2));
+                } catch (IllegalArgumentException ignored) {
+                    // A status this version does not know
+                }
+            });
+            checkpointed = totals;
+        } catch (RuntimeException ex) {
+            log.warn("Could not read order_status_counts", ex);
+        }
+    }
+
+    private static Map<OrderStatus, Long> plus(Map<OrderStatus, Long> base, Map<OrderStatus, Long> deltas, int sign) {
+        if (deltas.isEmpty()) {
+            return base;
+        }
+        Map<OrderStatus, Long> sum = new EnumMap<>(OrderStatus.class);
+        sum.putAll(base);
+        deltas.forEach((status, delta) -> sum.merge(status, sign * delta, Long::sum));
+        return sum;
+    }
+
+    /*
+     * A rolled-back transition never happened, so counting waits for the
+     * commit. Outside a transaction the update has already committed.
+     */
+    private static void afterCommit(Runnable update) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    update.run();
+                }
+            });
+        } else {
+            update.run();
+        }
+    }
+
+    private long minute() {
+        return System.currentTimeMillis() / 60_000;
+    }
+
+    @Override
+    public void start() {
+        reload();
+        running = true;
+    }
+
+    // Last deltas go out on shutdown, after the listeners and web server have stopped
+    @Override
+    public void stop() {
+        running = false;
+        checkpoint();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return Integer.MIN_VALUE + 1;
+    }
+}
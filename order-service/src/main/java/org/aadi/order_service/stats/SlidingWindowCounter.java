@@ -0,0 +1,78 @@
+package org.aadi.order_service.stats;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Event counts per minute over a ring of the last `minutes` minutes, plus
+ * a running total. Each slot is a LongAdder stamped with its minute;
+ * writers in the same minute only touch their own adder cell, and the
+ * first writer of a new minute recycles the slot it lands on (the one
+ * `minutes` minutes old). Reads sum the slots still inside the window, so
+ * both sides are O(slots) with no lock on the hot path.
+ *
+ * Minutes are absolute (epoch millis / 60000) and passed in by the
+ * caller, which keeps the clock out of here.
+ */
+public final class SlidingWindowCounter {
+
+    private static final class Slot {
+        volatile long minute = -1;
+        final LongAdder count = new LongAdder();
+    }
+
+    private final Slot[] slots;
+    private final LongAdder total = new LongAdder();
+
+    public SlidingWindowCounter(int minutes) {
+        this.slots = new Slot[minutes];
+        for (int i = 0; i < minutes; i++) {
+            slots[i] = new Slot();
+        }
+    }
+
+    public void add(long minute, long n) {
+        Slot slot = slots[(int) (minute % slots.length)];
+
+        if (slot.minute < minute) {
+            synchronized (slot) {
+                if (slot.minute < minute) {
+                    slot.count.reset();
+                    slot.minute = minute;
+                }
+            }
+        }
+        // A straggler from a minute whose slot was already recycled lands in the newer one
+        slot.count.add(n);
+        total.add(n);
+    }
+
+    // Events in the last `window` minutes, the current one included
+    public long sum(long nowMinute, int window) {
+        long oldest = nowMinute - Math.min(window, slots.length) + 1;
+        long sum = 0;
+        for (Slot slot : slots) {
+            long minute = slot.minute;
+            if (minute >= oldest && minute <= nowMinute) {
+                sum += slot.count.sum();
+            }
+        }
+        return sum;
+    }
+
+    // Per-minute counts, oldest first, ending at nowMinute
+    public long[] perMinute(long nowMinute, int window) {
+        int n = Math.min(window, slots.length);
+        long[] counts = new long[n];
+        for (Slot slot : slots) {
+            long age = nowMinute - slot.minute;
+            if (age >= 0 && age < n) {
+                counts[(int) (n - 1 - age)] = slot.count.sum();
+            }
+        }
+        return counts;
+    }
+
+    public long total() {
+        return total.sum();
+    }
+}
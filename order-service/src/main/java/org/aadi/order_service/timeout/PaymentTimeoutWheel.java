@@ -0,0 +1,169 @@
+package org.aadi.order_service.timeout;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aadi.order_service.domain.OrderStatus;
+import org.aadi.order_service.repo.OrderRepository;
+import org.aadi.order_service.service.OrderPartitionMaintenance;
+import org.aadi.order_service.service.PaymentTimeoutService;
+import org.aadi.order_service.shard.Shards;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Fires payment timeouts from memory, within one tick of their deadline,
+ * instead of waiting for a periodic table scan. Armed from the DB on
+ * startup and by OrderService as orders enter payment; the DB sweep in
+ * PaymentTimeoutScheduler stays as a slow reconciliation pass for
+ * anything missed (e.g. orders created on another replica that died).
+ */
+@Component
+public class PaymentTimeoutWheel implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentTimeoutWheel.class);
+
+    private static final int WHEEL_SIZE = 64;
+
+    private final OrderRepository orderRepo;
+    private final PaymentTimeoutService timeoutService;
+    private final OrderPartitionMaintenance partitions;
+    private final Shards shards;
+    private final Duration timeout;
+    private final long tickMs;
+    private final int batchSize;
+    private final Duration retryDelay;
+
+    // Producers never touch the wheel; the ticker drains this inbox each tick
+    private final Queue<Deadline> inbox = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger armed = new AtomicInteger();
+    private final Counter fired;
+
+    private ScheduledExecutorService ticker;
+    private TimingWheel<UUID> wheel;
+    private volatile boolean running;
+
+    public PaymentTimeoutWheel(
+            OrderRepository orderRepo,
+            PaymentTimeoutService timeoutService,
+            OrderPartitionMaintenance partitions,
+            Shards shards,
+            @Value("${payment.timeout.duration:5m}") Duration timeout,
+            @Value("${payment.timeout.wheel.tick-ms:1000}") long tickMs,
+            @Value("${payment.timeout.wheel.batch-size:100}") int batchSize,
+            @Value("${payment.timeout.wheel.retry-delay:10s}") Duration retryDelay,
+            MeterRegistry meterRegistry) {
+        this.orderRepo = orderRepo;
+        this.timeoutService = timeoutService;
+        this.partitions = partitions;
+        this.shards = shards;
+        this.timeout = timeout;
+        this.tickMs = tickMs;
+        this.batchSize = batchSize;
+        this.retryDelay = retryDelay;
+
+        this.fired = Counter.builder("payment.timeout.wheel.fired")
+                .description("Orders moved to PAYMENT_TIMEOUT by the timing wheel")
+                .register(meterRegistry);
+        Gauge.builder("payment.timeout.wheel.armed", armed, AtomicInteger::get)
+                .description("Payment timeouts currently armed in memory")
+                .register(meterRegistry);
+    }
+
+    // Arm the timeout of an order that has just entered PAYMENT_PENDING
+    public void schedule(UUID orderId, Instant pendingSince) {
+        inbox.add(new Deadline(orderId, pendingSince.plus(timeout).toEpochMilli()));
+    }
+
+    @Override
+    public void start() {
+        wheel = new TimingWheel<>(tickMs, WHEEL_SIZE, System.currentTimeMillis());
+
+        // Seed from every shard in keyset chunks; anything already overdue fires on the first tick
+        shards.forEach(shard -> orderRepo.forEachRefChunk(
+                OrderStatus.PAYMENT_PENDING,
+                partitions.hotSince(),
+                Instant.now(),
+                batchSize,
+                chunk -> chunk.forEach(ref -> schedule(ref.id(), ref.createdAt()))
+        ));
+
+        ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "payment-timeout-wheel");
+            t.setDaemon(true);
+            return t;
+        });
+        ticker.scheduleWithFixedDelay(this::tick, tickMs, tickMs, TimeUnit.MILLISECONDS);
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (ticker != null) {
+            ticker.shutdownNow();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void tick() {
+        try {
+            long now = System.currentTimeMillis();
+            List<UUID> due = new ArrayList<>();
+
+            Deadline t;
+            while ((t = inbox.poll()) != null) {
+                if (!wheel.add(t.orderId(), t.deadlineMs())) {
+                    due.add(t.orderId());
+                }
+            }
+
+            wheel.advance(now, due::add);
+            armed.set(wheel.size());
+
+            // One transaction per batch, and a batch never spans shards
+            for (Map.Entry<Integer, List<UUID>> group : shards.byShard(due).entrySet()) {
+                List<UUID> ids = group.getValue();
+                for (int from = 0; from < ids.size(); from += batchSize) {
+                    expire(group.getKey(), ids.subList(from, Math.min(from + batchSize, ids.size())), now);
+                }
+            }
+        } catch (RuntimeException ex) {
+            // Never let an exception cancel the periodic task
+            log.error("Payment timeout wheel tick failed", ex);
+        }
+    }
+
+    private void expire(int shard, List<UUID> batch, long now) {
+        try {
+            fired.increment(shards.on(shard, () -> timeoutService.expire(batch)));
+        } catch (RuntimeException ex) {
+            log.warn("Payment timeout batch of {} failed, retrying in {}", batch.size(), retryDelay, ex);
+            long retryAt = now + retryDelay.toMillis();
+            batch.forEach(id -> wheel.add(id, retryAt));
+        }
+    }
+
+    private record Deadline(UUID orderId, long deadlineMs) {
+    }
+}
@@ -0,0 +1,115 @@
+package org.aadi.order_service.timeout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/*
+ * Hierarchical timing wheel. Level 0 has wheelSize slots of tickMs each;
+ * deadlines beyond its span go to an overflow wheel whose tick is the
+ * whole span of the level below, created on demand. When level 0 enters
+ * a new overflow tick, that overflow slot is cascaded down and its entries
+ * land in their exact level-0 slot. Insertion and expiry are O(1) per
+ * entry no matter how many timers are pending.
+ *
+ * Not thread-safe: one thread owns add() and advance().
+ */
+public final class TimingWheel<T> {
+
+    private final long tickMs;
+    private final int wheelSize;
+    private final List<Entry<T>>[] slots;
+
+    // Absolute tick (time / tickMs) of the next slot to process
+    private long currentTick;
+    private TimingWheel<T> overflow;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    public TimingWheel(long tickMs, int wheelSize, long startMs) {
+        this.tickMs = tickMs;
+        this.wheelSize = wheelSize;
+        this.slots = new List[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            slots[i] = new ArrayList<>();
+        }
+        this.currentTick = startMs / tickMs;
+    }
+
+    /*
+     * Returns false, and keeps nothing, when the deadline is already due
+     * at the wheel's current time; the caller should fire it right away.
+     */
+    public boolean add(T item, long deadlineMs) {
+        return add(new Entry<>(item, deadlineMs));
+    }
+
+    // Fire every entry whose deadline tick is at or before nowMs
+    public void advance(long nowMs, Consumer<T> onExpired) {
+        advanceTo(nowMs / tickMs, e -> onExpired.accept(e.item()));
+    }
+
+    public int size() {
+        return size + (overflow == null ? 0 : overflow.size());
+    }
+
+    private boolean add(Entry<T> e) {
+        long tick = e.deadlineMs() / tickMs;
+
+        if (tick < currentTick) {
+            return false;
+        }
+
+        if (tick < currentTick + wheelSize) {
+            slots[slotOf(tick)].add(e);
+            size++;
+            return true;
+        }
+
+        return overflow().add(e);
+    }
+
+    private void advanceTo(long targetTick, Consumer<Entry<T>> sink) {
+        while (currentTick <= targetTick) {
+
+            // Entering a new overflow tick: pull its entries down first
+            if (overflow != null && currentTick % wheelSize == 0) {
+                overflow.advanceTo(currentTick / wheelSize, this::cascade);
+            }
+
+            List<Entry<T>> slot = slots[slotOf(currentTick)];
+            if (!slot.isEmpty()) {
+                slots[slotOf(currentTick)] = new ArrayList<>();
+                size -= slot.size();
+                slot.forEach(sink);
+            }
+
+            currentTick++;
+        }
+    }
+
+    private void cascade(Entry<T> e) {
+        long tick = e.deadlineMs() / tickMs;
+        if (tick < currentTick + wheelSize) {
+            // Always lands at or after currentTick, so it is processed this round
+            slots[slotOf(Math.max(tick, currentTick))].add(e);
+            size++;
+        } else {
+            overflow().add(e);
+        }
+    }
+
+    private TimingWheel<T> overflow() {
+        if (overflow == null) {
+            overflow = new TimingWheel<>(tickMs * wheelSize, wheelSize, currentTick * tickMs);
+        }
+        return overflow;
+    }
+
+    private int slotOf(long tick) {
+        return (int) (tick % wheelSize);
+    }
+
+    private record Entry<T>(T item, long deadlineMs) {
+    }
+}
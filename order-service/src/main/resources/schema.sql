@@ -0,0 +1,303 @@
+-- Runs before Hibernate (spring.sql.init) so ddl-auto=update finds these
+-- tables already in place and only adds columns it does not know about.
+
+-- ---- Range partitions on created_at ----
+
+-- Creates partition_name of parent for [lower, upper) unless it exists. Rows
+-- of that range already in the default partition (maintenance was down, clock
+-- skew) would make CREATE ... PARTITION OF fail, so they are moved into the
+-- new table, which is then attached.
+CREATE OR REPLACE FUNCTION ensure_range_partition(
+        parent regclass, default_partition regclass, partition_name text,
+        lower timestamptz, upper timestamptz) RETURNS void AS $$
+DECLARE
+    stray boolean;
+    moved bigint;
+BEGIN
+    IF to_regclass(partition_name) IS NOT NULL THEN
+        RETURN;
+    END IF;
+
+    EXECUTE format('SELECT EXISTS (SELECT 1 FROM %s WHERE created_at >= %L AND created_at < %L)',
+                   default_partition, lower, upper)
+        INTO stray;
+
+    IF NOT stray THEN
+        EXECUTE format('CREATE TABLE %I PARTITION OF %s FOR VALUES FROM (%L) TO (%L)',
+                       partition_name, parent, lower, upper);
+        RETURN;
+    END IF;
+
+    -- Filled before it is attached, so the parent's insert triggers do not fire again
+    EXECUTE format('CREATE TABLE %I (LIKE %s INCLUDING DEFAULTS INCLUDING CONSTRAINTS)',
+                   partition_name, parent);
+    EXECUTE format('WITH moved AS (DELETE FROM %s WHERE created_at >= %L AND created_at < %L RETURNING *) '
+                       || 'INSERT INTO %I SELECT * FROM moved',
+                   default_partition, lower, upper, partition_name);
+    GET DIAGNOSTICS moved = ROW_COUNT;
+    EXECUTE format('ALTER TABLE %s ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                   parent, partition_name, lower, upper);
+
+    RAISE WARNING 'Moved % rows from % into new partition %', moved, default_partition, partition_name;
+END;
+$$ LANGUAGE plpgsql;
+
+-- ---- outbox_events: daily range partitions on created_at ----
+
+-- Called by OutboxPartitionMaintenance at startup and hourly, with
+-- outbox.retention.partitions-ahead. A day that cannot be created is logged
+-- and skipped: its rows go to outbox_events_default until a later run.
+CREATE OR REPLACE FUNCTION outbox_events_ensure_partitions(days_ahead integer) RETURNS void AS $$
+DECLARE
+    day  date := (now() AT TIME ZONE 'UTC')::date;
+    last date := day + days_ahead;
+BEGIN
+    PERFORM pg_advisory_xact_lock(hashtext('outbox_events_partitions'));
+
+    WHILE day <= last LOOP
+        BEGIN
+            PERFORM ensure_range_partition(
+                    'outbox_events', 'outbox_events_default',
+                    'outbox_events_p' || to_char(day, 'YYYYMMDD'),
+                    day::timestamp AT TIME ZONE 'UTC',
+                    (day + 1)::timestamp AT TIME ZONE 'UTC');
+        EXCEPTION WHEN OTHERS THEN
+            RAISE WARNING 'Could not create outbox_events partition for %: %', day, SQLERRM;
+        END;
+        day := day + 1;
+    END LOOP;
+END;
+$$ LANGUAGE plpgsql;
+
+DO $$
+BEGIN
+    PERFORM pg_advisory_xact_lock(hashtext('outbox_events_schema'));
+
+    -- A plain table from before partitioning is kept aside as outbox_events_legacy
+    IF EXISTS (SELECT 1
+                 FROM pg_class c
+                 JOIN pg_namespace n ON n.oid = c.relnamespace
+                WHERE c.relname = 'outbox_events'
+                  AND c.relkind = 'r'
+                  AND n.nspname = current_schema()) THEN
+        ALTER TABLE outbox_events RENAME TO outbox_events_legacy;
+    END IF;
+
+    CREATE TABLE IF NOT EXISTS outbox_events (
+        id               uuid                        NOT NULL,
+        aggregate_type   varchar(255)                NOT NULL,
+        event_type       varchar(255)                NOT NULL,
+        aggregate_id     uuid                        NOT NULL,
+        -- Legacy JSON rows; new rows carry the encoded event in payload_bytes
+        payload          jsonb,
+        payload_bytes    bytea,
+        status           varchar(255),
+        created_at       timestamp(6) with time zone NOT NULL,
+        lease_owner      varchar(255),
+        lease_expires_at timestamp(6) with time zone,
+        -- The partition key has to be part of the primary key
+        CONSTRAINT outbox_events_part_pkey PRIMARY KEY (id, created_at)
+    ) PARTITION BY RANGE (created_at);
+
+    -- Catches rows outside every daily partition instead of failing the insert
+    CREATE TABLE IF NOT EXISTS outbox_events_default PARTITION OF outbox_events DEFAULT;
+
+    -- The relay only ever reads PENDING rows: index just those, so its cost
+    -- follows the backlog and not the table's history
+    CREATE INDEX IF NOT EXISTS outbox_events_pending_idx
+        ON outbox_events (created_at)
+        WHERE status = 'PENDING';
+
+    CREATE INDEX IF NOT EXISTS outbox_events_lease_idx
+        ON outbox_events (lease_owner)
+        WHERE lease_owner IS NOT NULL;
+
+    -- Tables created before the binary event codec
+    ALTER TABLE outbox_events ADD COLUMN IF NOT EXISTS payload_bytes bytea;
+    ALTER TABLE outbox_events ALTER COLUMN payload DROP NOT NULL;
+
+    -- FAILED events Kafka rejected for good, moved here when their day is retired
+    -- so the partition can go; kept for inspection or a manual replay
+    CREATE TABLE IF NOT EXISTS outbox_events_dead (
+        id               uuid                        NOT NULL PRIMARY KEY,
+        aggregate_type   varchar(255)                NOT NULL,
+        event_type       varchar(255)                NOT NULL,
+        aggregate_id     uuid                        NOT NULL,
+        payload          jsonb,
+        payload_bytes    bytea,
+        created_at       timestamp(6) with time zone NOT NULL,
+        dead_lettered_at timestamp(6) with time zone NOT NULL
+    );
+END $$;
+
+DO $$
+BEGIN
+    PERFORM pg_advisory_xact_lock(hashtext('outbox_events_schema'));
+
+    -- Carry unsent rows over from the legacy table; what stays there is SENT history only
+    IF to_regclass('outbox_events_legacy') IS NOT NULL THEN
+        INSERT INTO outbox_events (id, aggregate_type, event_type, aggregate_id, payload, status, created_at)
+        SELECT id, aggregate_type, event_type, aggregate_id, payload, status, created_at
+          FROM outbox_events_legacy
+         WHERE status <> 'SENT'
+        ON CONFLICT DO NOTHING;
+
+        DELETE FROM outbox_events_legacy WHERE status <> 'SENT';
+    END IF;
+END $$;
+
+-- ---- order_history: read model kept by OrderHistoryProjection's trigger ----
+
+-- Also created by Hibernate on the first shard; here so every shard gets it (ShardingConfig)
+CREATE TABLE IF NOT EXISTS order_history (
+    order_id     uuid                        NOT NULL PRIMARY KEY,
+    customer_id  varchar(255)                NOT NULL,
+    status       varchar(255)                NOT NULL,
+    created_at   timestamp(6) with time zone NOT NULL,
+    updated_at   timestamp(6) with time zone NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_order_history_customer_created_id
+    ON order_history (customer_id, created_at DESC, order_id);
+
+-- ---- orders: monthly range partitions on created_at ----
+
+-- Called by OrderPartitionMaintenance at startup and nightly, with
+-- order.partitions.months-ahead. A month that cannot be created is logged
+-- and skipped: its orders go to orders_default until a later run.
+CREATE OR REPLACE FUNCTION orders_ensure_partitions(months_ahead integer) RETURNS void AS $$
+DECLARE
+    month date := date_trunc('month', now() AT TIME ZONE 'UTC')::date;
+    last  date := (month + make_interval(months => months_ahead))::date;
+BEGIN
+    PERFORM pg_advisory_xact_lock(hashtext('orders_partitions'));
+
+    WHILE month <= last LOOP
+        BEGIN
+            PERFORM ensure_range_partition(
+                    'orders', 'orders_default',
+                    'orders_p' || to_char(month, 'YYYYMM'),
+                    month::timestamp AT TIME ZONE 'UTC',
+                    (month + interval '1 month') AT TIME ZONE 'UTC');
+        EXCEPTION
+            WHEN invalid_object_definition THEN
+                -- Month still inside orders_legacy, which runs to the end of the month it was converted in
+                NULL;
+            WHEN OTHERS THEN
+                RAISE WARNING 'Could not create orders partition for %: %', month, SQLERRM;
+        END;
+        month := (month + interval '1 month')::date;
+    END LOOP;
+END;
+$$ LANGUAGE plpgsql;
+
+DO $$
+BEGIN
+    PERFORM pg_advisory_xact_lock(hashtext('orders_schema'));
+
+    -- A unique index on a partitioned table must include created_at, so
+    -- idempotency keys are enforced here instead, filled by a trigger on orders
+    CREATE TABLE IF NOT EXISTS order_idempotency_keys (
+        idempotency_key  varchar(255)                NOT NULL PRIMARY KEY,
+        order_id         uuid                        NOT NULL,
+        created_at       timestamp(6) with time zone NOT NULL
+    );
+
+    -- A plain table from before partitioning becomes the first partition, in place
+    IF EXISTS (SELECT 1
+                 FROM pg_class c
+                 JOIN pg_namespace n ON n.oid = c.relnamespace
+                WHERE c.relname = 'orders'
+                  AND c.relkind = 'r'
+                  AND n.nspname = current_schema()) THEN
+        ALTER TABLE orders RENAME TO orders_legacy;
+        -- Matched, not rebuilt, when the parent index below is attached
+        ALTER INDEX IF EXISTS idx_orders_status_created_id RENAME TO orders_legacy_status_created_id_idx;
+        -- Re-created on the parent (and so on every partition) by OrderHistoryProjection
+        DROP TRIGGER IF EXISTS orders_history_project ON orders_legacy;
+        -- A partition's primary key must match the parent's (id, created_at), and
+        -- idempotency keys are unique through order_idempotency_keys from now on
+        EXECUTE (SELECT 'ALTER TABLE orders_legacy '
+                        || coalesce(string_agg(format('DROP CONSTRAINT %I', conname), ', ') || ', ', '')
+                        || 'ADD CONSTRAINT orders_legacy_pkey PRIMARY KEY (id, created_at)'
+                   FROM pg_constraint
+                  WHERE conrelid = 'orders_legacy'::regclass
+                    AND contype IN ('p', 'u'));
+
+        INSERT INTO order_idempotency_keys (idempotency_key, order_id, created_at)
+        SELECT idempotency_key, id, created_at
+          FROM orders_legacy
+        ON CONFLICT DO NOTHING;
+
+        -- GET /api/orders reads order_history: every existing order must be there
+        -- before it is served, not only once the opt-in backfill has run
+        INSERT INTO order_history (order_id, customer_id, status, created_at, updated_at)
+        SELECT id, customer_id, status, created_at, now()
+          FROM orders_legacy
+         WHERE status IS NOT NULL
+        ON CONFLICT (order_id) DO NOTHING;
+    END IF;
+
+    CREATE TABLE IF NOT EXISTS orders (
+        id               uuid                        NOT NULL,
+        customer_id      varchar(255)                NOT NULL,
+        idempotency_key  varchar(255)                NOT NULL,
+        status           varchar(255),
+        created_at       timestamp(6) with time zone NOT NULL,
+        -- The partition key has to be part of the primary key
+        CONSTRAINT orders_part_pkey PRIMARY KEY (id, created_at)
+    ) PARTITION BY RANGE (created_at);
+
+    CREATE INDEX IF NOT EXISTS idx_orders_status_created_id
+        ON orders (status, created_at, id);
+
+    -- Everything up to the end of this month stays where it is; monthly partitions start after it
+    IF to_regclass('orders_legacy') IS NOT NULL
+            AND NOT EXISTS (SELECT 1 FROM pg_inherits WHERE inhrelid = to_regclass('orders_legacy')) THEN
+        EXECUTE format(
+                'ALTER TABLE orders ATTACH PARTITION orders_legacy FOR VALUES FROM (MINVALUE) TO (%L)',
+                (date_trunc('month', now() AT TIME ZONE 'UTC') + interval '1 month') AT TIME ZONE 'UTC');
+    END IF;
+
+    -- Catches rows outside every monthly partition instead of failing the insert
+    CREATE TABLE IF NOT EXISTS orders_default PARTITION OF orders DEFAULT;
+END $$;
+
+CREATE OR REPLACE FUNCTION orders_claim_idempotency_key() RETURNS trigger AS $$
+BEGIN
+    -- A duplicate key fails the order insert with a unique violation, as the old constraint did
+    INSERT INTO order_idempotency_keys (idempotency_key, order_id, created_at)
+    VALUES (NEW.idempotency_key, NEW.id, NEW.created_at);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE TRIGGER orders_claim_idempotency_key
+    AFTER INSERT ON orders
+    FOR EACH ROW EXECUTE FUNCTION orders_claim_idempotency_key();
+
+-- ---- order_status_counts: checkpointed totals behind OrderStats ----
+
+CREATE TABLE IF NOT EXISTS order_status_counts (
+    status varchar(255) NOT NULL PRIMARY KEY,
+    count  bigint       NOT NULL
+);
+
+DO $$
+BEGIN
+    PERFORM pg_advisory_xact_lock(hashtext('order_status_counts'));
+
+    -- The one count(*) the counters ever need: from here on replicas add their deltas
+    IF NOT EXISTS (SELECT 1 FROM order_status_counts) THEN
+        INSERT INTO order_status_counts (status, count)
+        SELECT status, count(*)
+          FROM orders
+         WHERE status IS NOT NULL
+         GROUP BY status;
+
+        -- Marks the table seeded even with no orders yet, so a later start never counts again
+        INSERT INTO order_status_counts (status, count)
+        VALUES ('PAYMENT_PENDING', 0)
+        ON CONFLICT DO NOTHING;
+    END IF;
+END $$;
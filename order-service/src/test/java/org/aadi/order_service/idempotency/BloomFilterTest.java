@@ -0,0 +1,70 @@
+package org.aadi.order_service.idempotency;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BloomFilterTest {
+
+    private static final int CAPACITY = 100_000;
+
+    @Test
+    void everyKeyPutIsFound() {
+        BloomFilter filter = new BloomFilter(CAPACITY, 0.01);
+        List<String> keys = keys("put-", CAPACITY);
+
+        keys.forEach(filter::put);
+
+        assertThat(keys).allMatch(filter::mightContain);
+        assertThat(filter.insertions()).isEqualTo(CAPACITY);
+    }
+
+    @Test
+    void concurrentPutsLoseNoBits() throws Exception {
+        BloomFilter filter = new BloomFilter(CAPACITY, 0.01);
+        List<List<String>> perThread = IntStream.range(0, 4)
+                .mapToObj(t -> keys("thread-" + t + "-", CAPACITY / 4))
+                .toList();
+
+        List<Thread> threads = new ArrayList<>();
+        for (List<String> keys : perThread) {
+            threads.add(Thread.ofPlatform().start(() -> keys.forEach(filter::put)));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        perThread.forEach(keys -> assertThat(keys).allMatch(filter::mightContain));
+        assertThat(filter.insertions()).isEqualTo(CAPACITY);
+    }
+
+    @ParameterizedTest
+    @ValueSource(doubles = {0.1, 0.01, 0.001})
+    void falsePositiveRateIsNearTheConfiguredOne(double configured) {
+        BloomFilter filter = new BloomFilter(CAPACITY, configured);
+        keys("put-", CAPACITY).forEach(filter::put);
+
+        int probes = 200_000;
+        long falsePositives = keys("absent-", probes).stream().filter(filter::mightContain).count();
+        double observed = (double) falsePositives / probes;
+
+        // Well inside these bounds at this sample size; far outside means a broken hash or sizing
+        assertThat(observed).isBetween(configured / 2, configured * 1.5);
+    }
+
+    // Idempotency-Key headers are typically UUIDs
+    private static List<String> keys(String prefix, int n) {
+        List<String> keys = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            keys.add(prefix + new UUID(prefix.hashCode(), i));
+        }
+        return keys;
+    }
+}
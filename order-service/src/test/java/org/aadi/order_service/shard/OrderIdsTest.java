@@ -0,0 +1,68 @@
+package org.aadi.order_service.shard;
+
+import org.aadi.order_service.domain.UuidV7;
+import org.aadi.order_service.repo.CreatedAtRange;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OrderIdsTest {
+
+    @Test
+    void shardSurvivesRoundTripThroughTheId() {
+        for (int shard = 0; shard < OrderIds.MAX_SHARDS; shard++) {
+            assertThat(OrderIds.shard(OrderIds.next(shard))).isEqualTo(shard);
+        }
+    }
+
+    @Test
+    void idsAreVersion8WithTheRfcVariant() {
+        UUID id = OrderIds.next(5);
+
+        assertThat(id.version()).isEqualTo(8);
+        assertThat(id.variant()).isEqualTo(2);
+    }
+
+    @Test
+    void createdAtRangeStillReadsTheTimestamp() {
+        Instant before = Instant.now();
+        UUID id = OrderIds.next(OrderIds.MAX_SHARDS - 1);
+        Instant after = Instant.now();
+
+        Instant created = UuidV7.timestamp(id);
+        assertThat(created).isBetween(before.minusMillis(1), after.plusMillis(1));
+
+        CreatedAtRange range = CreatedAtRange.of(id);
+        assertThat(range).isNotEqualTo(CreatedAtRange.ALL);
+        assertThat(range.from()).isBefore(created);
+        assertThat(range.to()).isAfter(created);
+    }
+
+    @Test
+    void idsStayTimeOrdered() {
+        UUID first = OrderIds.next(200);
+        UUID second = OrderIds.next(3);
+
+        // Postgres compares uuids as unsigned bytes, most significant first
+        assertThat(Long.compareUnsigned(first.getMostSignificantBits(), second.getMostSignificantBits()))
+                .isNegative();
+    }
+
+    @Test
+    void idsFromBeforeShardingBelongToShardZero() {
+        assertThat(OrderIds.shard(UuidV7.next())).isEqualTo(Shards.HOME);
+        assertThat(OrderIds.shard(UUID.randomUUID())).isEqualTo(Shards.HOME);
+    }
+
+    @Test
+    void shardOutOfRangeIsRejected() {
+        assertThatThrownBy(() -> OrderIds.next(OrderIds.MAX_SHARDS))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> OrderIds.next(-1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,106 @@
+package org.aadi.order_service.shard;
+
+import org.aadi.order_service.controller.OrderController.OrderResponse;
+import org.aadi.order_service.service.OrderService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.postgresql.PostgreSQLContainer;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+ * order-service on two Postgres databases: a customer's order, its outbox
+ * row and its history row must all land on the customer's shard, and
+ * nothing on the other one.
+ *
+ * Kafka listeners stay stopped and nothing is published; the outbox rows
+ * are checked where they were written.
+ */
+@SpringBootTest(properties = {
+        "order.shards.enabled=true",
+        "spring.kafka.bootstrap-servers=localhost:1",
+        "spring.kafka.listener.auto-startup=false",
+        "spring.kafka.producer.properties.max.block.ms=100"
+})
+@Testcontainers(disabledWithoutDocker = true)
+class ShardingIntegrationTest {
+
+    @Container
+    static final PostgreSQLContainer SHARD_0 = new PostgreSQLContainer("postgres:15");
+
+    @Container
+    static final PostgreSQLContainer SHARD_1 = new PostgreSQLContainer("postgres:15");
+
+    @DynamicPropertySource
+    static void shards(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", SHARD_0::getJdbcUrl);
+        // Every shard is reached with shard 0's credentials
+        registry.add("spring.datasource.username", SHARD_0::getUsername);
+        registry.add("spring.datasource.password", SHARD_0::getPassword);
+        registry.add("order.shards.urls", SHARD_1::getJdbcUrl);
+    }
+
+    @Autowired
+    private OrderService orders;
+
+    @Autowired
+    private Shards shards;
+
+    @Test
+    void customerDataLandsOnTheCustomersShard() {
+        List<JdbcTemplate> databases = List.of(jdbc(SHARD_0), jdbc(SHARD_1));
+
+        for (int shard = 0; shard < databases.size(); shard++) {
+            String customerId = customerOn(shard);
+
+            UUID orderId = orders.createOrder(customerId, UUID.randomUUID().toString());
+
+            assertThat(shards.ofOrder(orderId)).isEqualTo(shard);
+            for (int other = 0; other < databases.size(); other++) {
+                int expected = other == shard ? 1 : 0;
+                JdbcTemplate db = databases.get(other);
+
+                assertThat(count(db, "SELECT count(*) FROM orders WHERE id = ? AND customer_id = ?", orderId, customerId))
+                        .as("orders on shard %d", other).isEqualTo(expected);
+                assertThat(count(db, "SELECT count(*) FROM outbox_events WHERE aggregate_id = ?", orderId))
+                        .as("outbox_events on shard %d", other).isEqualTo(expected);
+                assertThat(count(db, "SELECT count(*) FROM order_history WHERE order_id = ? AND customer_id = ?", orderId, customerId))
+                        .as("order_history on shard %d", other).isEqualTo(expected);
+            }
+
+            // And the customer's reads go to the same shard
+            assertThat(orders.getOrdersByCustomerId(customerId, PageRequest.of(0, 10)).getContent())
+                    .extracting(OrderResponse::getId)
+                    .containsExactly(orderId);
+        }
+    }
+
+    private String customerOn(int shard) {
+        while (true) {
+            String customerId = "customer-" + UUID.randomUUID();
+            if (shards.ofCustomer(customerId) == shard) {
+                return customerId;
+            }
+        }
+    }
+
+    private static JdbcTemplate jdbc(PostgreSQLContainer database) {
+        return new JdbcTemplate(new DriverManagerDataSource(
+                database.getJdbcUrl(), database.getUsername(), database.getPassword()));
+    }
+
+    private static long count(JdbcTemplate db, String sql, Object... args) {
+        return db.queryForObject(sql, Long.class, args);
+    }
+}
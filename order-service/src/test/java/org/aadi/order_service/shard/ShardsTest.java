@@ -0,0 +1,117 @@
+package org.aadi.order_service.shard;
+
+import org.aadi.order_service.domain.UuidV7;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ShardsTest {
+
+    private final Shards shards = new Shards(true, "jdbc:postgresql://shard0/orders",
+            List.of("jdbc:postgresql://shard1/orders", " jdbc:postgresql://shard2/orders ", ""));
+
+    @AfterEach
+    void endTransaction() {
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+    }
+
+    @Test
+    void blankUrlsAreSkipped() {
+        assertThat(shards.count()).isEqualTo(3);
+        assertThat(shards.url(2)).isEqualTo("jdbc:postgresql://shard2/orders");
+    }
+
+    @Test
+    void disabledShardingIsOneShard() {
+        Shards single = new Shards(false, "jdbc:postgresql://shard0/orders", List.of("jdbc:postgresql://shard1/orders"));
+
+        assertThat(single.count()).isEqualTo(1);
+        assertThat(single.ofCustomer("anyone")).isEqualTo(Shards.HOME);
+        assertThat(single.newOrderId(Shards.HOME).version()).isEqualTo(7);
+    }
+
+    @Test
+    void customersMapToAStableShard() {
+        List<Integer> seen = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            int shard = shards.ofCustomer("customer-" + i);
+            assertThat(shard).isBetween(0, 2).isEqualTo(shards.ofCustomer("customer-" + i));
+            seen.add(shard);
+        }
+        assertThat(seen).contains(0, 1, 2);
+    }
+
+    @Test
+    void newOrderIdsRouteBackToTheirShard() {
+        for (int shard = 0; shard < shards.count(); shard++) {
+            assertThat(shards.ofOrder(shards.newOrderId(shard))).isEqualTo(shard);
+        }
+        assertThat(shards.ofOrder(UuidV7.next())).isEqualTo(Shards.HOME);
+    }
+
+    @Test
+    void orderOnAShardNotConfiguredIsRejected() {
+        UUID elsewhere = OrderIds.next(7);
+
+        assertThatThrownBy(() -> shards.ofOrder(elsewhere))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("shard 7");
+    }
+
+    @Test
+    void byShardGroupsInShardOrder() {
+        UUID a = OrderIds.next(2);
+        UUID b = OrderIds.next(0);
+        UUID c = OrderIds.next(2);
+
+        Map<Integer, List<UUID>> groups = shards.byShard(List.of(a, b, c));
+
+        assertThat(groups.keySet()).containsExactly(0, 2);
+        assertThat(groups.get(2)).containsExactly(a, c);
+    }
+
+    @Test
+    void onBindsTheShardAndRestoresThePrevious() {
+        assertThat(Shards.current()).isNull();
+
+        shards.run(1, () -> {
+            assertThat(Shards.current()).isEqualTo(1);
+            shards.run(2, () -> assertThat(Shards.current()).isEqualTo(2));
+            assertThat(Shards.current()).isEqualTo(1);
+        });
+
+        assertThat(Shards.current()).isNull();
+    }
+
+    @Test
+    void onRefusesToSwitchShardsInsideATransaction() {
+        shards.run(1, () -> {
+            TransactionSynchronizationManager.setActualTransactionActive(true);
+
+            assertThatThrownBy(() -> shards.run(2, () -> { }))
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessageContaining("Cannot switch to shard 2 inside a transaction on shard 1");
+            assertThat(Shards.current()).isEqualTo(1);
+
+            // Staying on the transaction's shard is fine
+            assertThat(shards.on(1, () -> Shards.current())).isEqualTo(1);
+        });
+    }
+
+    @Test
+    void transactionOutsideAnyBindingIsOnShardZero() {
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+
+        assertThat(shards.on(Shards.HOME, () -> Shards.current())).isEqualTo(Shards.HOME);
+        assertThatThrownBy(() -> shards.run(1, () -> { }))
+                .isInstanceOf(IllegalStateException.class);
+    }
+}
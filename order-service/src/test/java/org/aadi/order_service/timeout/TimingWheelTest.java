@@ -0,0 +1,121 @@
+package org.aadi.order_service.timeout;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TimingWheelTest {
+
+    // 8 slots of 10ms: level 0 spans 80ms, the first overflow 640ms
+    private static final long TICK_MS = 10;
+    private static final int WHEEL_SIZE = 8;
+
+    @Test
+    void entryFiresOnItsTickAndNotBefore() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK_MS, WHEEL_SIZE, 0);
+        List<String> fired = new ArrayList<>();
+
+        assertThat(wheel.add("a", 25)).isTrue();
+        assertThat(wheel.add("b", 39)).isTrue();
+
+        wheel.advance(19, fired::add);
+        assertThat(fired).isEmpty();
+
+        // 25 and 29 share a tick, so a is due at 20
+        wheel.advance(20, fired::add);
+        assertThat(fired).containsExactly("a");
+
+        wheel.advance(39, fired::add);
+        assertThat(fired).containsExactly("a", "b");
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void entryBeyondTheSpanCascadesDownFromOverflow() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK_MS, WHEEL_SIZE, 0);
+        List<String> fired = new ArrayList<>();
+
+        // Two levels of overflow away
+        assertThat(wheel.add("far", 1_005)).isTrue();
+        assertThat(wheel.size()).isEqualTo(1);
+
+        for (long now = 0; now < 1_000; now += TICK_MS) {
+            wheel.advance(now, fired::add);
+            assertThat(fired).as("fired early at %d", now).isEmpty();
+        }
+        assertThat(wheel.size()).isEqualTo(1);
+
+        wheel.advance(1_000, fired::add);
+        assertThat(fired).containsExactly("far");
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void everyEntryFiresExactlyOnceOnItsTick() {
+        TimingWheel<Integer> wheel = new TimingWheel<>(TICK_MS, WHEEL_SIZE, 0);
+        Random random = new Random(42);
+        Map<Integer, Long> deadlines = new HashMap<>();
+        Map<Integer, Long> firedAt = new HashMap<>();
+
+        for (int i = 0; i < 2_000; i++) {
+            long deadline = random.nextLong(20_000);
+            deadlines.put(i, deadline);
+            assertThat(wheel.add(i, deadline)).isTrue();
+        }
+
+        for (long now = 0; now < 20_000; now += TICK_MS) {
+            long tickStart = now;
+            wheel.advance(now, item -> assertThat(firedAt.put(item, tickStart)).as("fired twice").isNull());
+        }
+
+        assertThat(firedAt).hasSameSizeAs(deadlines);
+        deadlines.forEach((item, deadline) ->
+                assertThat(firedAt.get(item)).as("item %d", item).isEqualTo(deadline / TICK_MS * TICK_MS));
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void oneLargeAdvanceFiresInDeadlineOrder() {
+        TimingWheel<Long> wheel = new TimingWheel<>(TICK_MS, WHEEL_SIZE, 0);
+        List<Long> fired = new ArrayList<>();
+
+        for (long deadline : new long[]{5_000, 70, 650, 3, 81, 1_300}) {
+            wheel.add(deadline, deadline);
+        }
+
+        wheel.advance(5_000, fired::add);
+        assertThat(fired).isSortedAccordingTo(Comparator.naturalOrder()).hasSize(6);
+    }
+
+    @Test
+    void deadlineAlreadyDueIsRejected() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK_MS, WHEEL_SIZE, 0);
+        wheel.advance(100, item -> { });
+
+        // The tick containing 100 has been processed, as has everything before it
+        assertThat(wheel.add("past", 50)).isFalse();
+        assertThat(wheel.add("now", 100)).isFalse();
+        assertThat(wheel.size()).isZero();
+
+        assertThat(wheel.add("next", 110)).isTrue();
+    }
+
+    @Test
+    void wheelStartedLateRejectsEarlierDeadlines() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK_MS, WHEEL_SIZE, 1_000_000);
+        List<String> fired = new ArrayList<>();
+
+        assertThat(wheel.add("past", 999_990)).isFalse();
+        assertThat(wheel.add("due", 1_000_005)).isTrue();
+
+        wheel.advance(1_000_000, fired::add);
+        assertThat(fired).containsExactly("due");
+    }
+}
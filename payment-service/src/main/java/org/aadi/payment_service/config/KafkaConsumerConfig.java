@@ -1,13 +1,18 @@
 package org.aadi.payment_service.config;
 
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.listener.ContainerProperties;
 import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultAfterRollbackProcessor;
 import org.springframework.kafka.listener.DefaultErrorHandler;
 import org.springframework.util.backoff.FixedBackOff;
 
@@ -21,56 +26,159 @@ public class KafkaConsumerConfig {
     ConcurrentKafkaListenerContainerFactory<Object, Object>
     kafkaListenerContainerFactory(
             ConsumerFactory<Object, Object> consumerFactory,
-            KafkaTemplate<Object, Object> kafkaTemplate
+            DeadLetterPublishingRecoverer deadLetterRecoverer,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads
     ) {
 
         ConcurrentKafkaListenerContainerFactory<Object, Object> factory =
-                new ConcurrentKafkaListenerContainerFactory<>();
-
-        factory.setConsumerFactory(consumerFactory);
+                containerFactory(consumerFactory, deadLetterRecoverer, virtualThreads);
 
         // Manual acknowledgment
         factory.getContainerProperties()
                 .setAckMode(ContainerProperties.AckMode.MANUAL);
 
-        //Dead Letter Publishing with ORIGINAL TOPIC HEADER
-        DeadLetterPublishingRecoverer recoverer =
-                new DeadLetterPublishingRecoverer(
-                        kafkaTemplate,
-                        (record, exception) -> {
-
-                            // Preserve original topic for replay tooling
-                            record.headers().add(
-                                    "x-original-topic",
-                                    record.topic().getBytes(StandardCharsets.UTF_8)
-                            );
-
-                            // Optional but very useful for ops/debugging
-                            record.headers().add(
-                                    "x-exception-class",
-                                    exception.getClass()
-                                            .getName()
-                                            .getBytes(StandardCharsets.UTF_8)
-                            );
-
-                            record.headers().add(
-                                    "x-exception-message",
-                                    Optional.ofNullable(exception.getMessage())
-                                            .orElse("N/A")
-                                            .getBytes(StandardCharsets.UTF_8)
-                            );
-
-                            // Route to <original-topic>.dlt
-                            return new TopicPartition(
-                                    record.topic() + ".dlt",
-                                    record.partition()
-                            );
-                        }
-                );
+        return factory;
+    }
+
+    /*
+     * Whole poll batches per listener call; the listener acknowledges once
+     * per batch. It throws BatchListenerFailedException to name the poison
+     * record: the records before it are committed, it alone goes to the DLT
+     * after retries, and the rest are redelivered.
+     */
+    @Bean
+    ConcurrentKafkaListenerContainerFactory<Object, Object>
+    batchKafkaListenerContainerFactory(
+            ConsumerFactory<Object, Object> consumerFactory,
+            DeadLetterPublishingRecoverer deadLetterRecoverer,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads
+    ) {
+
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory =
+                containerFactory(consumerFactory, deadLetterRecoverer, virtualThreads);
+
+        factory.setBatchListener(true);
+        factory.getContainerProperties()
+                .setAckMode(ContainerProperties.AckMode.MANUAL);
+
+        return factory;
+    }
+
+    /*
+     * Records handed to worker threads, acknowledged from there in any
+     * order. The container commits a partition only up to its lowest
+     * offset not yet acknowledged, and polls it again once every record of
+     * the previous poll is, so max.poll.records bounds the work in flight.
+     */
+    @Bean
+    ConcurrentKafkaListenerContainerFactory<Object, Object>
+    parallelKafkaListenerContainerFactory(
+            ConsumerFactory<Object, Object> consumerFactory,
+            DeadLetterPublishingRecoverer deadLetterRecoverer,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads
+    ) {
+
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory =
+                containerFactory(consumerFactory, deadLetterRecoverer, virtualThreads);
+
+        factory.getContainerProperties()
+                .setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.getContainerProperties()
+                .setAsyncAcks(true);
+
+        return factory;
+    }
+
+    /*
+     * Whole poll batches, each in one Kafka transaction together with its
+     * consumed offsets (see TransactionalKafka). A failed batch is rolled
+     * back and redelivered; after 3 retries its records go to the DLT, in
+     * a transaction that also commits their offsets.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "payment.kafka.transactions.enabled", havingValue = "true")
+    ConcurrentKafkaListenerContainerFactory<Object, Object>
+    transactionalKafkaListenerContainerFactory(
+            ConsumerFactory<Object, Object> consumerFactory,
+            DeadLetterPublishingRecoverer deadLetterRecoverer,
+            TransactionalKafka transactionalKafka,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads
+    ) {
+
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory =
+                containerFactory(consumerFactory, deadLetterRecoverer, virtualThreads);
+
+        factory.setBatchListener(true);
+        factory.getContainerProperties()
+                .setKafkaAwareTransactionManager(transactionalKafka.transactionManager());
+        factory.setAfterRollbackProcessor(
+                new DefaultAfterRollbackProcessor<>(
+                        transactionalKafka.deadLetterRecoverer(),
+                        new FixedBackOff(3000L, 3), // retry 3 times
+                        transactionalKafka.template(),
+                        true
+                ));
+
+        return factory;
+    }
+
+    //Dead Letter Publishing with ORIGINAL TOPIC HEADER
+    @Bean
+    DeadLetterPublishingRecoverer deadLetterRecoverer(KafkaTemplate<Object, Object> kafkaTemplate) {
+        return new DeadLetterPublishingRecoverer(kafkaTemplate, KafkaConsumerConfig::deadLetterDestination);
+    }
+
+    static TopicPartition deadLetterDestination(ConsumerRecord<?, ?> record, Exception exception) {
+
+        // Preserve original topic for replay tooling
+        record.headers().add(
+                "x-original-topic",
+                record.topic().getBytes(StandardCharsets.UTF_8)
+        );
+
+        // Optional but very useful for ops/debugging
+        record.headers().add(
+                "x-exception-class",
+                exception.getClass()
+                        .getName()
+                        .getBytes(StandardCharsets.UTF_8)
+        );
+
+        record.headers().add(
+                "x-exception-message",
+                Optional.ofNullable(exception.getMessage())
+                        .orElse("N/A")
+                        .getBytes(StandardCharsets.UTF_8)
+        );
+
+        // Route to <original-topic>.dlt
+        return new TopicPartition(
+                record.topic() + ".dlt",
+                record.partition()
+        );
+    }
+
+    private ConcurrentKafkaListenerContainerFactory<Object, Object> containerFactory(
+            ConsumerFactory<Object, Object> consumerFactory,
+            DeadLetterPublishingRecoverer deadLetterRecoverer,
+            boolean virtualThreads
+    ) {
+
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+
+        factory.setConsumerFactory(consumerFactory);
+
+        // This factory bypasses Boot's configurer, so apply spring.threads.virtual.enabled here
+        if (virtualThreads) {
+            SimpleAsyncTaskExecutor listenerExecutor = new SimpleAsyncTaskExecutor("kafka-listener-");
+            listenerExecutor.setVirtualThreads(true);
+            factory.getContainerProperties().setListenerTaskExecutor(listenerExecutor);
+        }
 
         DefaultErrorHandler errorHandler =
                 new DefaultErrorHandler(
-                        recoverer,
+                        deadLetterRecoverer,
                         new FixedBackOff(3000L, 3) // retry 3 times
                 );
 
@@ -0,0 +1,64 @@
+package org.aadi.payment_service.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.kafka.autoconfigure.KafkaProperties;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.transaction.KafkaTransactionManager;
+import org.springframework.stereotype.Component;
+
+/*
+ * A transactional producer for transactionalKafkaListenerContainerFactory,
+ * opt-in with payment.kafka.transactions.enabled.
+ *
+ * The container starts a transaction per poll batch, the listener sends
+ * through template() and the container adds the consumed offsets before
+ * committing: results and offsets become visible together, or not at
+ * all for read_committed consumers.
+ *
+ * Deliberately not beans of their own: a second ProducerFactory or
+ * KafkaTemplate would replace Boot's, and a second transaction manager
+ * would make JPA's @Transactional ambiguous. Everything else keeps
+ * publishing through the plain, non-transactional template.
+ */
+@Component
+@ConditionalOnProperty(name = "payment.kafka.transactions.enabled", havingValue = "true")
+public class TransactionalKafka implements AutoCloseable {
+
+    private final DefaultKafkaProducerFactory<Object, Object> producerFactory;
+    private final KafkaTemplate<Object, Object> template;
+    private final KafkaTransactionManager<Object, Object> transactionManager;
+    private final DeadLetterPublishingRecoverer deadLetterRecoverer;
+
+    public TransactionalKafka(
+            KafkaProperties kafkaProperties,
+            // Unique per instance, so a restarted instance fences off its own zombie
+            @Value("${payment.kafka.transactions.id-prefix}") String transactionIdPrefix) {
+        this.producerFactory = new DefaultKafkaProducerFactory<>(kafkaProperties.buildProducerProperties());
+        producerFactory.setTransactionIdPrefix(transactionIdPrefix);
+
+        this.template = new KafkaTemplate<>(producerFactory);
+        this.transactionManager = new KafkaTransactionManager<>(producerFactory);
+        this.deadLetterRecoverer = new DeadLetterPublishingRecoverer(template, KafkaConsumerConfig::deadLetterDestination);
+    }
+
+    public KafkaTemplate<Object, Object> template() {
+        return template;
+    }
+
+    public KafkaTransactionManager<Object, Object> transactionManager() {
+        return transactionManager;
+    }
+
+    // Publishes in the caller's transaction
+    public DeadLetterPublishingRecoverer deadLetterRecoverer() {
+        return deadLetterRecoverer;
+    }
+
+    @Override
+    public void close() {
+        producerFactory.destroy();
+    }
+}
@@ -0,0 +1,62 @@
+package org.aadi.payment_service.consumer;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Runs tasks on virtual threads, one at a time per key and in submission
+ * order, tasks for different keys at once.
+ *
+ * Each key maps to the last task submitted for it, and a new task starts
+ * when that one ends; the entry goes once its key has nothing queued. At
+ * most maxInFlight tasks are queued or running: submit waits beyond that.
+ * Tasks are expected to handle their own failures, but one that throws
+ * still lets the next task for its key run.
+ */
+final class KeyOrderedExecutor implements AutoCloseable {
+
+    private static final CompletableFuture<Void> IDLE = CompletableFuture.completedFuture(null);
+
+    private final ExecutorService workers;
+    private final Map<Object, CompletableFuture<Void>> tails = new ConcurrentHashMap<>();
+    private final Semaphore slots;
+    private final int maxInFlight;
+
+    KeyOrderedExecutor(String threadPrefix, int maxInFlight) {
+        this.maxInFlight = maxInFlight;
+        this.workers = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(threadPrefix, 0).factory());
+        this.slots = new Semaphore(maxInFlight);
+    }
+
+    void submit(Object key, Runnable task) throws InterruptedException {
+        slots.acquire();
+
+        CompletableFuture<Void> next = tails.compute(key, (k, tail) ->
+                (tail == null ? IDLE : tail).handleAsync((ignored, ex) -> {
+                    task.run();
+                    return null;
+                }, workers));
+
+        // Outside compute: the task may already be done, and this must not touch the map from inside it
+        next.whenComplete((ignored, ex) -> {
+            tails.remove(key, next);
+            slots.release();
+        });
+    }
+
+    int inFlight() {
+        return maxInFlight - slots.availablePermits();
+    }
+
+    // Lets running tasks finish, up to the timeout
+    @Override
+    public void close() throws InterruptedException {
+        workers.shutdown();
+        workers.awaitTermination(10, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,61 @@
+package org.aadi.payment_service.consumer;
+
+import org.aadi.event_codec.OrderCreated;
+import org.aadi.payment_service.service.PaymentProcessor;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/*
+ * Batch variant of OrderCreatedConsumer: a whole poll batch goes to
+ * PaymentProcessor.processPayments and is acknowledged once.
+ *
+ * A record that cannot be read is reported by index: the orders before it
+ * are paid and committed, the record itself goes to order.created.dlt
+ * after retries, and the rest are redelivered.
+ */
+@Component
+@ConditionalOnProperty(name = "payment.order-created.batch.enabled", havingValue = "true")
+public class OrderCreatedBatchConsumer {
+
+    private final PaymentProcessor processor;
+
+    public OrderCreatedBatchConsumer(PaymentProcessor processor) {
+        this.processor = processor;
+    }
+
+    @KafkaListener(topics = "order.created", groupId = "payment-microservice", containerFactory = "batchKafkaListenerContainerFactory")
+    public void consume(
+            List<ConsumerRecord<Object, Object>> records,
+            Acknowledgment ack) {
+
+        List<UUID> orderIds = new ArrayList<>(records.size());
+        int poisonIndex = -1;
+
+        for (int i = 0; i < records.size(); i++) {
+            // ErrorHandlingDeserializer leaves a null value when the payload could not be read
+            if (records.get(i).value() instanceof OrderCreated event && event.orderId() != null) {
+                orderIds.add(event.orderId());
+            } else {
+                poisonIndex = i;
+                break;
+            }
+        }
+
+        processor.processPayments(orderIds);
+
+        if (poisonIndex >= 0) {
+            throw new BatchListenerFailedException(
+                    "Unreadable order.created event", records.get(poisonIndex));
+        }
+
+        ack.acknowledge();
+    }
+}
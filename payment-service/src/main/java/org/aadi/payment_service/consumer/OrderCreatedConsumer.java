@@ -1,14 +1,21 @@
 package org.aadi.payment_service.consumer;
 
+import org.aadi.event_codec.OrderCreated;
 import org.aadi.payment_service.service.PaymentProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Component;
 
-import java.util.Map;
-import java.util.UUID;
-
 @Component
+@ConditionalOnProperty(
+        name = {
+                "payment.order-created.batch.enabled",
+                "payment.order-created.parallel.enabled",
+                "payment.kafka.transactions.enabled"
+        },
+        havingValue = "false",
+        matchIfMissing = true)
 public class OrderCreatedConsumer {
 
     private final PaymentProcessor processor;
@@ -19,11 +26,10 @@ public class OrderCreatedConsumer {
 
     @KafkaListener(topics = "order.created", groupId = "payment-microservice", containerFactory = "kafkaListenerContainerFactory")
     public void consume(
-            Map<String, Object> event,
+            OrderCreated event,
             Acknowledgment ack) {
-        UUID orderId = UUID.fromString(event.get("orderId").toString());
 
-        processor.processPayment(orderId);
+        processor.processPayment(event.orderId());
 
         ack.acknowledge();
     }
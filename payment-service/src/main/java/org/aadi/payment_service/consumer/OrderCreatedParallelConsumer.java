@@ -0,0 +1,112 @@
+package org.aadi.payment_service.consumer;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aadi.event_codec.OrderCreated;
+import org.aadi.payment_service.service.PaymentProcessor;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+
+/*
+ * Parallel variant of OrderCreatedConsumer. Records of one partition are
+ * processed concurrently, one at a time per record key (the order id),
+ * so a slow gateway call holds up only its own order instead of the
+ * whole partition.
+ *
+ * Each record is acknowledged once processed, in whatever order that
+ * happens; the container commits up to the lowest offset still open (see
+ * parallelKafkaListenerContainerFactory). A failing record is retried
+ * like the container would, 3 times 3 s apart (processPayment releases
+ * its Redis claim when it fails, so each retry runs in full), then
+ * dead-lettered. If the
+ * DLT cannot be reached either, that is retried until it works, since
+ * acknowledging a record that went nowhere would lose the order.
+ */
+@Component
+@ConditionalOnProperty(name = "payment.order-created.parallel.enabled", havingValue = "true")
+public class OrderCreatedParallelConsumer implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderCreatedParallelConsumer.class);
+
+    private static final int RETRIES = 3;
+    private static final long RETRY_BACKOFF_MS = 3000;
+
+    private final PaymentProcessor processor;
+    private final DeadLetterPublishingRecoverer deadLetters;
+    private final KeyOrderedExecutor workers;
+
+    public OrderCreatedParallelConsumer(
+            PaymentProcessor processor,
+            DeadLetterPublishingRecoverer deadLetters,
+            MeterRegistry meterRegistry,
+            @Value("${payment.order-created.parallel.max-in-flight:256}") int maxInFlight,
+            @Value("${payment.order-created.batch.enabled:false}") boolean batchEnabled) {
+        if (batchEnabled) {
+            throw new IllegalStateException(
+                    "payment.order-created.parallel.enabled and payment.order-created.batch.enabled are exclusive");
+        }
+        this.processor = processor;
+        this.deadLetters = deadLetters;
+        this.workers = new KeyOrderedExecutor("payment-worker-", maxInFlight);
+
+        Gauge.builder("payment.order-created.in-flight", workers, KeyOrderedExecutor::inFlight)
+                .description("order.created records queued or running on payment workers")
+                .register(meterRegistry);
+    }
+
+    @KafkaListener(topics = "order.created", groupId = "payment-microservice", containerFactory = "parallelKafkaListenerContainerFactory")
+    public void consume(
+            ConsumerRecord<Object, Object> record,
+            Acknowledgment ack) throws InterruptedException {
+
+        // Keyless records keep partition order
+        Object key = record.key() != null ? record.key() : record.partition();
+        workers.submit(key, () -> process(record, ack));
+    }
+
+    private void process(ConsumerRecord<Object, Object> record, Acknowledgment ack) {
+        RuntimeException failure = null;
+
+        for (int attempt = 0; ; attempt++) {
+            try {
+                // ErrorHandlingDeserializer leaves a null value when the payload could not be read
+                if (!(record.value() instanceof OrderCreated event) || event.orderId() == null) {
+                    deadLetters.accept(record, new IllegalArgumentException("Unreadable order.created event"));
+                } else if (attempt <= RETRIES) {
+                    processor.processPayment(event.orderId());
+                } else {
+                    deadLetters.accept(record, failure);
+                }
+                ack.acknowledge();
+                return;
+            } catch (RuntimeException ex) {
+                // The DLT record carries the processing error, not a later DLT one
+                if (attempt <= RETRIES) {
+                    failure = ex;
+                }
+                log.warn("order.created {}-{}@{} failed on attempt {}",
+                        record.topic(), record.partition(), record.offset(), attempt + 1, ex);
+            }
+
+            try {
+                Thread.sleep(RETRY_BACKOFF_MS);
+            } catch (InterruptedException ex) {
+                // Shutting down: left unacknowledged, so it is redelivered
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        workers.close();
+    }
+}
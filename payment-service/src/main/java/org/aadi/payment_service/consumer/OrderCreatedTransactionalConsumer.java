@@ -0,0 +1,60 @@
+package org.aadi.payment_service.consumer;
+
+import org.aadi.event_codec.OrderCreated;
+import org.aadi.payment_service.config.TransactionalKafka;
+import org.aadi.payment_service.service.PaymentProcessor;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/*
+ * Exactly-once variant of OrderCreatedBatchConsumer: each poll batch runs
+ * in one Kafka transaction, which commits the payment results together
+ * with the batch's offsets. No acknowledgment; the container commits.
+ *
+ * An unreadable record is dead-lettered within the same transaction,
+ * rather than failing the batch.
+ */
+@Component
+@ConditionalOnProperty(name = "payment.kafka.transactions.enabled", havingValue = "true")
+public class OrderCreatedTransactionalConsumer {
+
+    private final PaymentProcessor processor;
+    private final TransactionalKafka kafka;
+
+    public OrderCreatedTransactionalConsumer(
+            PaymentProcessor processor,
+            TransactionalKafka kafka,
+            @Value("${payment.order-created.batch.enabled:false}") boolean batchEnabled,
+            @Value("${payment.order-created.parallel.enabled:false}") boolean parallelEnabled) {
+        if (batchEnabled || parallelEnabled) {
+            throw new IllegalStateException(
+                    "payment.kafka.transactions.enabled excludes payment.order-created.batch/parallel.enabled");
+        }
+        this.processor = processor;
+        this.kafka = kafka;
+    }
+
+    @KafkaListener(topics = "order.created", groupId = "payment-microservice", containerFactory = "transactionalKafkaListenerContainerFactory")
+    public void consume(List<ConsumerRecord<Object, Object>> records) {
+
+        List<UUID> orderIds = new ArrayList<>(records.size());
+
+        for (ConsumerRecord<Object, Object> record : records) {
+            // ErrorHandlingDeserializer leaves a null value when the payload could not be read
+            if (record.value() instanceof OrderCreated event && event.orderId() != null) {
+                orderIds.add(event.orderId());
+            } else {
+                kafka.deadLetterRecoverer().accept(record, new IllegalArgumentException("Unreadable order.created event"));
+            }
+        }
+
+        processor.processPaymentsInTransaction(orderIds, kafka.template());
+    }
+}
@@ -28,7 +28,7 @@ public class PaymentLedger {
     protected PaymentLedger() {}
 
     public PaymentLedger(UUID orderId, PaymentStatus status) {
-        this.paymentId = UUID.randomUUID();
+        this.paymentId = UuidV7.next();
         this.orderId = orderId;
         this.status = status;
         this.createdAt = Instant.now();
@@ -0,0 +1,144 @@
+package org.aadi.payment_service.gateway;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * Concurrency limit for gateway calls that follows the PSP's capacity.
+ *
+ * Latency-gradient (Vegas family): a long-run average round-trip stands
+ * for the PSP's normal latency and a short-run average for its latency
+ * now. While the two agree the limit grows by about sqrt(limit) per
+ * sample; once calls take more than TOLERANCE times longer than normal,
+ * the PSP is queueing them and the limit shrinks in proportion. Averages
+ * rather than the minimum round-trip, because PSP latency is noisy and a
+ * single fast answer would make every other call look queued.
+ *
+ * A timeout or an overload answer cuts the limit multiplicatively (AIMD),
+ * since by then latency alone reacts too slowly. The limit only grows
+ * while it is actually in use, so a quiet period cannot inflate it.
+ */
+final class AdaptiveLimiter {
+
+    private static final double TOLERANCE = 1.5;
+    private static final double SHORT_WEIGHT = 0.1;
+    private static final double LONG_WEIGHT = 1.0 / 600;
+    private static final double SMOOTHING = 0.2;
+    private static final double BACKOFF = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+
+    // Guarded by lock
+    private double limit;
+    private int inFlight;
+    private double shortRttNanos;
+    private double longRttNanos;
+
+    AdaptiveLimiter(int initialLimit, int minLimit, int maxLimit) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = Math.clamp(initialLimit, minLimit, maxLimit);
+    }
+
+    // Waits for a free slot; this is what holds callers back to the PSP's pace
+    void acquire() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (inFlight >= (int) limit) {
+                released.await();
+            }
+            inFlight++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    boolean tryAcquire() {
+        lock.lock();
+        try {
+            if (inFlight >= (int) limit) {
+                return false;
+            }
+            inFlight++;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // A call the PSP answered in rttNanos
+    void onSample(long rttNanos) {
+        lock.lock();
+        try {
+            if (longRttNanos == 0) {
+                shortRttNanos = rttNanos;
+                longRttNanos = rttNanos;
+            } else {
+                shortRttNanos += (rttNanos - shortRttNanos) * SHORT_WEIGHT;
+                longRttNanos += (rttNanos - longRttNanos) * LONG_WEIGHT;
+            }
+
+            // Once latency has settled at a new level, take it as the new normal
+            if (longRttNanos > 2 * shortRttNanos) {
+                longRttNanos *= 0.95;
+            }
+
+            if (inFlight * 2 >= limit) {
+                double gradient = Math.clamp(TOLERANCE * longRttNanos / shortRttNanos, 0.5, 1.0);
+                double target = limit * gradient + Math.sqrt(limit);
+                limit = Math.clamp(limit * (1 - SMOOTHING) + target * SMOOTHING, minLimit, maxLimit);
+            }
+            release();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // A call that timed out or was turned away for load
+    void onDropped() {
+        lock.lock();
+        try {
+            limit = Math.max(minLimit, limit * BACKOFF);
+            release();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // As onDropped, for a call that keeps its slot to be tried again
+    void backOff() {
+        lock.lock();
+        try {
+            limit = Math.max(minLimit, limit * BACKOFF);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // A call that failed for reasons unrelated to load; it says nothing about capacity
+    void onIgnored() {
+        lock.lock();
+        try {
+            release();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int limit() {
+        return (int) limit;
+    }
+
+    int inFlight() {
+        return inFlight;
+    }
+
+    private void release() {
+        inFlight--;
+        released.signalAll();
+    }
+}
@@ -0,0 +1,6 @@
+package org.aadi.payment_service.gateway;
+
+public enum ChargeOutcome {
+    APPROVED,
+    DECLINED
+}
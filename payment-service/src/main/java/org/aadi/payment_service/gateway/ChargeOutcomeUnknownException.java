@@ -0,0 +1,11 @@
+package org.aadi.payment_service.gateway;
+
+import java.util.UUID;
+
+// No attempt at a charge got an answer; the PSP may have charged it or not
+public class ChargeOutcomeUnknownException extends RuntimeException {
+
+    public ChargeOutcomeUnknownException(UUID orderId, Throwable cause) {
+        super("Outcome of the charge for order " + orderId + " is unknown", cause);
+    }
+}
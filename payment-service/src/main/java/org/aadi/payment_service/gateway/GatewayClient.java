@@ -0,0 +1,163 @@
+package org.aadi.payment_service.gateway;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * How PaymentProcessor talks to the PaymentGateway.
+ *
+ *   - concurrency: at most AdaptiveLimiter's limit of calls are in flight.
+ *     charge() waits for a slot, then returns at once; the caller only
+ *     ever waits for capacity, never for one call's latency
+ *   - timeout: a call unanswered after payment.gateway.timeout fails
+ *   - overload: a call the PSP turns away for load is repeated shortly
+ *     after, in the same slot, until the timeout
+ *   - hedging: a call unanswered after payment.gateway.hedge-delay gets a
+ *     second one, if a slot is free right then; the first answer wins.
+ *     Both carry the same order id, which the PSP takes as idempotency key
+ *
+ * A charge fails only when every attempt has failed, and then with
+ * ChargeOutcomeUnknownException: a call that timed out or errored may
+ * still have charged the card. PaymentProcessor records nothing for it
+ * and lets the order be retried; the idempotency key makes the retry land
+ * on the same charge. Only a DECLINED answer is a failed payment.
+ */
+@Component
+public class GatewayClient implements AutoCloseable {
+
+    private static final long RETRY_DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+
+    private final PaymentGateway gateway;
+    private final AdaptiveLimiter limiter;
+    private final long timeoutMs;
+    private final long hedgeDelayMs;
+    private final ScheduledExecutorService hedger;
+
+    private final Timer latency;
+    private final Counter hedges;
+    private final Counter retries;
+
+    public GatewayClient(
+            PaymentGateway gateway,
+            MeterRegistry meterRegistry,
+            @Value("${payment.gateway.timeout:2s}") Duration timeout,
+            @Value("${payment.gateway.hedge-delay:0}") Duration hedgeDelay,
+            @Value("${payment.gateway.limit.initial:20}") int initialLimit,
+            @Value("${payment.gateway.limit.min:1}") int minLimit,
+            @Value("${payment.gateway.limit.max:200}") int maxLimit) {
+        this.gateway = gateway;
+        this.limiter = new AdaptiveLimiter(initialLimit, minLimit, maxLimit);
+        this.timeoutMs = timeout.toMillis();
+        this.hedgeDelayMs = hedgeDelay.toMillis();
+
+        this.latency = Timer.builder("payment.gateway.latency")
+                .description("Round-trip of gateway calls the PSP answered")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.hedges = Counter.builder("payment.gateway.hedges")
+                .description("Second calls sent for a slow charge")
+                .register(meterRegistry);
+        this.retries = Counter.builder("payment.gateway.retries")
+                .description("Calls repeated after the PSP turned them away for load")
+                .register(meterRegistry);
+        Gauge.builder("payment.gateway.limit", limiter, AdaptiveLimiter::limit)
+                .description("Concurrent gateway calls currently allowed")
+                .register(meterRegistry);
+        Gauge.builder("payment.gateway.in-flight", limiter, AdaptiveLimiter::inFlight)
+                .description("Gateway calls awaiting an answer")
+                .register(meterRegistry);
+
+        this.hedger = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "payment-gateway-hedge");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public CompletableFuture<ChargeOutcome> charge(UUID orderId) {
+        try {
+            limiter.acquire();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for gateway capacity", ex);
+        }
+
+        CompletableFuture<ChargeOutcome> result = new CompletableFuture<>();
+        AtomicInteger pending = new AtomicInteger(1);
+        attempt(orderId, result, pending);
+
+        if (hedgeDelayMs > 0) {
+            hedger.schedule(() -> {
+                if (!result.isDone() && limiter.tryAcquire()) {
+                    pending.incrementAndGet();
+                    hedges.increment();
+                    attempt(orderId, result, pending);
+                }
+            }, hedgeDelayMs, TimeUnit.MILLISECONDS);
+        }
+
+        return result;
+    }
+
+    // One call, holding one limiter slot until it is answered or times out
+    private void attempt(UUID orderId, CompletableFuture<ChargeOutcome> result, AtomicInteger pending) {
+        attempt(orderId, result, pending, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs));
+    }
+
+    private void attempt(UUID orderId, CompletableFuture<ChargeOutcome> result, AtomicInteger pending, long deadline) {
+        long start = System.nanoTime();
+
+        CompletableFuture<ChargeOutcome> call;
+        try {
+            call = gateway.charge(orderId);
+        } catch (RuntimeException ex) {
+            call = CompletableFuture.failedFuture(ex);
+        }
+
+        call.orTimeout(deadline - start, TimeUnit.NANOSECONDS).whenComplete((outcome, ex) -> {
+            if (ex == null) {
+                long rtt = System.nanoTime() - start;
+                limiter.onSample(rtt);
+                latency.record(rtt, TimeUnit.NANOSECONDS);
+                result.complete(outcome);
+                return;
+            }
+
+            Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+            if (cause instanceof GatewayOverloadedException && System.nanoTime() + RETRY_DELAY_NANOS - deadline < 0) {
+                // Nothing was charged: try again shortly, keeping the slot so the retry need not queue for one
+                limiter.backOff();
+                retries.increment();
+                hedger.schedule(() -> attempt(orderId, result, pending, deadline), RETRY_DELAY_NANOS, TimeUnit.NANOSECONDS);
+                return;
+            }
+            if (cause instanceof TimeoutException || cause instanceof GatewayOverloadedException) {
+                limiter.onDropped();
+            } else {
+                limiter.onIgnored();
+            }
+            if (pending.decrementAndGet() == 0) {
+                result.completeExceptionally(new ChargeOutcomeUnknownException(orderId, cause));
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        hedger.shutdownNow();
+    }
+}
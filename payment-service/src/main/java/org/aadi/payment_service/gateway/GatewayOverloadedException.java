@@ -0,0 +1,9 @@
+package org.aadi.payment_service.gateway;
+
+// The PSP turned a call away for lack of capacity; GatewayClient backs off on it
+public class GatewayOverloadedException extends RuntimeException {
+
+    public GatewayOverloadedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,20 @@
+package org.aadi.payment_service.gateway;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/*
+ * The external PSP. Implementations must not block the caller: the
+ * future completes when the PSP answers.
+ *
+ * A charge is identified by its order id, which implementations pass on
+ * as the PSP's idempotency key. GatewayClient relies on that when it
+ * hedges a slow call with a second one: both must land on the same charge.
+ *
+ * An overloaded PSP (429, 503) is reported as GatewayOverloadedException,
+ * any other failure as any other exception.
+ */
+public interface PaymentGateway {
+
+    CompletableFuture<ChargeOutcome> charge(UUID orderId);
+}
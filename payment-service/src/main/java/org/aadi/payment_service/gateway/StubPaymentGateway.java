@@ -0,0 +1,120 @@
+package org.aadi.payment_service.gateway;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * In-process stand-in for a PSP, for local runs and load tests.
+ *
+ * Answers arrive after a latency drawn from payment.gateway.stub.latency:
+ *
+ *   fixed        always latency-median
+ *   exponential  median latency-median, a long thin tail
+ *   lognormal    median latency-median, 99th percentile latency-p99
+ *
+ * Like a real PSP it slows down as it fills up, up to twice the drawn
+ * latency at capacity, and turns calls away with GatewayOverloadedException
+ * beyond it. Of the calls it takes, error-rate fail outright and hang-rate
+ * are never answered; the rest are approved with approval-rate.
+ */
+@Component
+@ConditionalOnProperty(name = "payment.gateway.type", havingValue = "stub", matchIfMissing = true)
+public class StubPaymentGateway implements PaymentGateway, AutoCloseable {
+
+    // Standard normal quantile at 0.99
+    private static final double Z_99 = 2.326;
+
+    private final String distribution;
+    private final double medianMs;
+    private final double sigma;
+    private final int capacity;
+    private final double approvalRate;
+    private final double errorRate;
+    private final double hangRate;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final ScheduledExecutorService answers;
+
+    public StubPaymentGateway(
+            @Value("${payment.gateway.stub.latency:lognormal}") String distribution,
+            @Value("${payment.gateway.stub.latency-median:80ms}") Duration median,
+            @Value("${payment.gateway.stub.latency-p99:400ms}") Duration p99,
+            @Value("${payment.gateway.stub.capacity:50}") int capacity,
+            @Value("${payment.gateway.stub.approval-rate:0.7}") double approvalRate,
+            @Value("${payment.gateway.stub.error-rate:0}") double errorRate,
+            @Value("${payment.gateway.stub.hang-rate:0}") double hangRate) {
+        if (!distribution.equals("fixed") && !distribution.equals("exponential") && !distribution.equals("lognormal")) {
+            throw new IllegalArgumentException("payment.gateway.stub.latency must be fixed, exponential or lognormal: " + distribution);
+        }
+        this.distribution = distribution;
+        this.medianMs = median.toMillis();
+        this.sigma = Math.log((double) Math.max(p99.toMillis(), median.toMillis() + 1) / Math.max(median.toMillis(), 1)) / Z_99;
+        this.capacity = capacity;
+        this.approvalRate = approvalRate;
+        this.errorRate = errorRate;
+        this.hangRate = hangRate;
+
+        this.answers = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "payment-gateway-stub");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @Override
+    public CompletableFuture<ChargeOutcome> charge(UUID orderId) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        CompletableFuture<ChargeOutcome> answer = new CompletableFuture<>();
+
+        int load = inFlight.incrementAndGet();
+        if (load > capacity) {
+            inFlight.decrementAndGet();
+            return CompletableFuture.failedFuture(new GatewayOverloadedException("Stub gateway at capacity (" + capacity + ")"));
+        }
+
+        double fault = random.nextDouble();
+        if (fault < hangRate) {
+            // Never answered: the caller's timeout is all that ends it
+            inFlight.decrementAndGet();
+            return answer;
+        }
+        boolean error = fault < hangRate + errorRate;
+        boolean approved = random.nextDouble() < approvalRate;
+
+        long delayMs = Math.round(latencyMs(random) * (1 + (double) load / capacity));
+        answers.schedule(() -> {
+            inFlight.decrementAndGet();
+            if (error) {
+                answer.completeExceptionally(new IllegalStateException("Stub gateway error for order " + orderId));
+            } else {
+                answer.complete(approved ? ChargeOutcome.APPROVED : ChargeOutcome.DECLINED);
+            }
+        }, delayMs, TimeUnit.MILLISECONDS);
+
+        return answer;
+    }
+
+    private double latencyMs(ThreadLocalRandom random) {
+        return switch (distribution) {
+            case "fixed" -> medianMs;
+            // Median of Exp(lambda) is ln 2 / lambda
+            case "exponential" -> -Math.log(1 - random.nextDouble()) * medianMs / Math.log(2);
+            default -> medianMs * Math.exp(sigma * random.nextGaussian());
+        };
+    }
+
+    @Override
+    public void close() {
+        answers.shutdownNow();
+    }
+}
@@ -3,6 +3,8 @@ package org.aadi.payment_service.repo;
 import org.aadi.payment_service.domain.PaymentLedger;
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -10,4 +12,5 @@ public interface PaymentLedgerRepository extends JpaRepository<PaymentLedger, UU
 
     Optional<PaymentLedger> findByOrderId(UUID orderId);
     boolean existsByOrderId(UUID orderId);
+    List<PaymentLedger> findByOrderIdIn(Collection<UUID> orderIds);
 }
@@ -0,0 +1,80 @@
+package org.aadi.payment_service.repo;
+
+import org.aadi.payment_service.domain.PaymentLedger;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.ByteBuffer;
+import java.sql.PreparedStatement;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/*
+ * Multi-row ledger inserts for batch payments, which JPA cannot express.
+ *
+ * The uuid columns are bytea (hibernate.type.preferred_uuid_jdbc_type=BINARY),
+ * so ids are bound as Hibernate stores them: 16 bytes, most significant
+ * half first.
+ */
+@Repository
+public class PaymentLedgerWriter {
+
+    // 4 parameters per row, well under the 32767 a Postgres statement can bind
+    private static final int ROWS_PER_STATEMENT = 1000;
+
+    private final JdbcTemplate jdbc;
+
+    public PaymentLedgerWriter(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    // Inserts the rows whose order has no ledger entry yet; returns the order ids actually inserted
+    @Transactional
+    public List<UUID> insertIfAbsent(List<PaymentLedger> rows) {
+        List<UUID> inserted = new ArrayList<>(rows.size());
+        for (int from = 0; from < rows.size(); from += ROWS_PER_STATEMENT) {
+            inserted.addAll(insertChunk(rows.subList(from, Math.min(from + ROWS_PER_STATEMENT, rows.size()))));
+        }
+        return inserted;
+    }
+
+    private List<UUID> insertChunk(List<PaymentLedger> rows) {
+        if (rows.isEmpty()) {
+            return List.of();
+        }
+
+        String sql = "INSERT INTO payment_ledger (payment_id, order_id, status, created_at) VALUES "
+                + String.join(", ", Collections.nCopies(rows.size(), "(?, ?, ?, ?)"))
+                + " ON CONFLICT (order_id) DO NOTHING RETURNING order_id";
+
+        return jdbc.query(
+                connection -> {
+                    PreparedStatement ps = connection.prepareStatement(sql);
+                    int i = 1;
+                    for (PaymentLedger row : rows) {
+                        ps.setBytes(i++, bytes(row.getPaymentId()));
+                        ps.setBytes(i++, bytes(row.getOrderId()));
+                        ps.setString(i++, row.getStatus().name());
+                        ps.setObject(i++, row.getCreatedAt().atOffset(ZoneOffset.UTC));
+                    }
+                    return ps;
+                },
+                (rs, rowNum) -> uuid(rs.getBytes(1)));
+    }
+
+    private static byte[] bytes(UUID id) {
+        return ByteBuffer.allocate(16)
+                .putLong(id.getMostSignificantBits())
+                .putLong(id.getLeastSignificantBits())
+                .array();
+    }
+
+    private static UUID uuid(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+}
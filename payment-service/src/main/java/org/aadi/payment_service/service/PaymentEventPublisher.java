@@ -1,11 +1,15 @@
 package org.aadi.payment_service.service;
 
+import org.aadi.event_codec.PaymentCompleted;
+import org.aadi.event_codec.PaymentFailed;
+import org.aadi.payment_service.domain.PaymentStatus;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
 
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 public class PaymentEventPublisher {
@@ -25,11 +29,31 @@ public class PaymentEventPublisher {
 
     public void publishCompleted(UUID orderId) {
         kafka.send(completed, orderId.toString(),
-                Map.of("orderId", orderId, "status", "SUCCESS"));
+                new PaymentCompleted(orderId));
     }
 
     public void publishFailed(UUID orderId) {
         kafka.send(failed, orderId.toString(),
-                Map.of("orderId", orderId, "status", "FAILED"));
+                new PaymentFailed(orderId));
+    }
+
+    /*
+     * All results in one go: every record is handed to the producer before
+     * any is waited for, so they leave as a few batched requests rather
+     * than one round-trip each. Throws if any send fails.
+     */
+    public void publishAll(Map<UUID, PaymentStatus> results) {
+        publishAll(results, kafka);
+    }
+
+    // Through another template, e.g. the one of a running Kafka transaction
+    public void publishAll(Map<UUID, PaymentStatus> results, KafkaTemplate<Object, Object> kafka) {
+        CompletableFuture<?>[] sends = results.entrySet().stream()
+                .map(result -> result.getValue() == PaymentStatus.SUCCESS
+                        ? kafka.send(completed, result.getKey().toString(), new PaymentCompleted(result.getKey()))
+                        : kafka.send(failed, result.getKey().toString(), new PaymentFailed(result.getKey())))
+                .toArray(CompletableFuture[]::new);
+
+        CompletableFuture.allOf(sends).join();
     }
 }
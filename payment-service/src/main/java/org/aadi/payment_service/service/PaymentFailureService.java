@@ -2,33 +2,27 @@ package org.aadi.payment_service.service;
 
 import org.aadi.payment_service.domain.PaymentLedger;
 import org.aadi.payment_service.domain.PaymentStatus;
-import org.aadi.payment_service.repo.PaymentLedgerRepository;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Propagation;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.util.UUID;
 
 @Service
 public class PaymentFailureService {
 
-    private final PaymentLedgerRepository repo;
+    private final PaymentLedgerBatcher ledger;
     private final PaymentEventPublisher publisher;
 
-    public PaymentFailureService(PaymentLedgerRepository repo, PaymentEventPublisher publisher) {
-        this.repo = repo;
+    public PaymentFailureService(PaymentLedgerBatcher ledger, PaymentEventPublisher publisher) {
+        this.ledger = ledger;
         this.publisher = publisher;
     }
 
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    // Committed by the batcher on its own, whatever the caller's transaction does
     public void recordFailure(UUID orderId) {
 
-        // Idempotency guard
-        if (repo.existsByOrderId(orderId)) {
-            return;
+        // Idempotency guard: false when the order already has an entry
+        if (ledger.append(new PaymentLedger(orderId, PaymentStatus.FAILED)).join()) {
+            publisher.publishFailed(orderId);
         }
-
-        repo.save(new PaymentLedger(orderId, PaymentStatus.FAILED));
-        publisher.publishFailed(orderId);
     }
 }
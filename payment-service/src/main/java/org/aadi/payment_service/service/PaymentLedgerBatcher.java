@@ -0,0 +1,150 @@
+package org.aadi.payment_service.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aadi.payment_service.domain.PaymentLedger;
+import org.aadi.payment_service.repo.PaymentLedgerWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Group commit for single ledger entries. Callers append a row and get a
+ * future; one flusher thread writes whatever has queued up as one
+ * multi-row insert in one transaction, so concurrent payments share a
+ * commit instead of paying one each.
+ *
+ * The flusher never waits for a group to fill: it takes everything
+ * queued, up to payment.ledger.batch.max-size rows, and writes it at
+ * once. Rows that arrive meanwhile make up the next group, so groups grow
+ * with concurrency and a lone payment is written straight away. The
+ * future completes once the flush has committed: true if the row was
+ * inserted, false if its order already had an entry (then whoever wrote
+ * that one publishes it). If the flush fails, every future in it fails.
+ *
+ * The queue is unbounded, but each caller waits on its future, so it
+ * holds at most one row per payment in flight.
+ */
+@Component
+public class PaymentLedgerBatcher implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentLedgerBatcher.class);
+
+    // How often an idle flusher checks for close()
+    private static final long IDLE_POLL_MS = 100;
+
+    private record Pending(PaymentLedger row, CompletableFuture<Boolean> durable) {}
+
+    private final PaymentLedgerWriter writer;
+    private final int maxSize;
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final Thread flusher;
+    private volatile boolean closed;
+
+    private final DistributionSummary batchSize;
+    private final Timer commitLatency;
+
+    public PaymentLedgerBatcher(
+            PaymentLedgerWriter writer,
+            MeterRegistry meterRegistry,
+            @Value("${payment.ledger.batch.max-size:500}") int maxSize) {
+        this.writer = writer;
+        this.maxSize = maxSize;
+
+        this.batchSize = DistributionSummary.builder("payment.ledger.batch.size")
+                .description("Ledger rows written per group commit")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.commitLatency = Timer.builder("payment.ledger.commit.latency")
+                .description("Insert and commit of one ledger group")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+
+        this.flusher = Thread.ofPlatform().name("payment-ledger-flusher").daemon().start(this::run);
+    }
+
+    public CompletableFuture<Boolean> append(PaymentLedger row) {
+        if (closed) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Ledger batcher is closed"));
+        }
+        Pending pending = new Pending(row, new CompletableFuture<>());
+        queue.add(pending);
+
+        // close() may have drained the queue for the last time between the check above and the add
+        if (closed && queue.remove(pending)) {
+            pending.durable().completeExceptionally(new IllegalStateException("Ledger batcher is closed"));
+        }
+        return pending.durable();
+    }
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>(maxSize);
+        try {
+            // After close(), keeps going until the queue is empty
+            while (!closed || !queue.isEmpty()) {
+                Pending head = queue.poll(IDLE_POLL_MS, TimeUnit.MILLISECONDS);
+                if (head == null) {
+                    continue;
+                }
+                batch.add(head);
+                queue.drainTo(batch, maxSize - 1);
+
+                flush(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void flush(List<Pending> batch) {
+        // One row per order: a repeat within the group is a conflict, like one against the table
+        Map<UUID, Pending> first = new LinkedHashMap<>();
+        List<Pending> repeats = new ArrayList<>();
+        for (Pending pending : batch) {
+            if (first.putIfAbsent(pending.row().getOrderId(), pending) != null) {
+                repeats.add(pending);
+            }
+        }
+
+        long start = System.nanoTime();
+        Set<UUID> inserted;
+        try {
+            inserted = new HashSet<>(writer.insertIfAbsent(first.values().stream().map(Pending::row).toList()));
+        } catch (RuntimeException ex) {
+            log.warn("Ledger group commit of {} rows failed", first.size(), ex);
+            batch.forEach(pending -> pending.durable().completeExceptionally(ex));
+            return;
+        }
+        commitLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        batchSize.record(first.size());
+
+        first.forEach((orderId, pending) -> pending.durable().complete(inserted.contains(orderId)));
+        repeats.forEach(pending -> pending.durable().complete(false));
+    }
+
+    // Flushes what is queued, up to the timeout; anything left after that fails
+    @Override
+    public void close() throws InterruptedException {
+        closed = true;
+        flusher.join(TimeUnit.SECONDS.toMillis(10));
+
+        List<Pending> left = new ArrayList<>();
+        queue.drainTo(left);
+        left.forEach(pending -> pending.durable().completeExceptionally(new IllegalStateException("Ledger batcher is closed")));
+    }
+}
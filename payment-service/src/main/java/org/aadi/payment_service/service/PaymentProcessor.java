@@ -2,63 +2,236 @@ package org.aadi.payment_service.service;
 
 import org.aadi.payment_service.domain.PaymentLedger;
 import org.aadi.payment_service.domain.PaymentStatus;
+import org.aadi.payment_service.gateway.ChargeOutcome;
+import org.aadi.payment_service.gateway.GatewayClient;
 import org.aadi.payment_service.repo.PaymentLedgerRepository;
+import org.aadi.payment_service.repo.PaymentLedgerWriter;
+import org.springframework.data.redis.connection.RedisStringCommands.SetOption;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
 
 @Service
 public class PaymentProcessor {
 
+    private static final Duration CLAIM_TTL = Duration.ofMinutes(10);
+
     private final PaymentLedgerRepository repo;
+    private final PaymentLedgerWriter writer;
+    private final PaymentLedgerBatcher ledger;
     private final StringRedisTemplate redis;
     private final PaymentEventPublisher publisher;
     private final PaymentFailureService failureService;
+    private final GatewayClient gateway;
 
 
 
-    public PaymentProcessor(PaymentLedgerRepository repo, StringRedisTemplate redis, PaymentEventPublisher publisher,PaymentFailureService failureService) {
+    public PaymentProcessor(PaymentLedgerRepository repo, PaymentLedgerWriter writer, PaymentLedgerBatcher ledger, StringRedisTemplate redis, PaymentEventPublisher publisher,PaymentFailureService failureService, GatewayClient gateway) {
         this.repo = repo;
+        this.writer = writer;
+        this.ledger = ledger;
         this.redis = redis;
         this.publisher = publisher;
         this.failureService=failureService;
+        this.gateway = gateway;
     }
 
-    @Transactional
+    /*
+     * No surrounding transaction: it would hold a connection for the whole
+     * gateway call.
+     *
+     * If this throws, the Redis claim is released, so the caller's retry
+     * (the container's, or OrderCreatedParallelConsumer's) processes the
+     * order again instead of stopping at the claim. An order already in the
+     * ledger by then gets its recorded result published again, as in
+     * processPayments. That includes a charge whose outcome is unknown: it
+     * is not recorded, and the retry sends it to the PSP again under the
+     * same idempotency key.
+     */
     public void processPayment(UUID orderId) {
 
-        String redisKey = "payment:" + orderId;
+        String redisKey = claimKey(orderId);
 
         // ---- Redis idempotency (fast path)
         Boolean first =
                 redis.opsForValue()
-                        .setIfAbsent(redisKey, "1", Duration.ofMinutes(10));
+                        .setIfAbsent(redisKey, "1", CLAIM_TTL);
 
         if (Boolean.FALSE.equals(first)) {
             return;
         }
 
-        // ---- DB idempotency (hard guarantee)
-        if (repo.findByOrderId(orderId).isPresent()) {
-            return;
+        try {
+            // ---- DB idempotency (hard guarantee)
+            Optional<PaymentLedger> settled = repo.findByOrderId(orderId);
+            if (settled.isPresent()) {
+                publish(orderId, settled.get().getStatus());
+                return;
+            }
+
+            // Waits for gateway capacity, not for the answer
+            CompletableFuture<ChargeOutcome> charge = gateway.charge(orderId);
+
+            if (statusOf(charge) == PaymentStatus.SUCCESS) {
+                // Shares a commit with concurrent payments; publishes only once the row is durable
+                if (ledger.append(new PaymentLedger(orderId, PaymentStatus.SUCCESS)).join()) {
+                    publisher.publishCompleted(orderId);
+                }
+            } else {
+                failureService.recordFailure(orderId);
+            }
+        } catch (RuntimeException ex) {
+            redis.delete(redisKey);
+            throw ex;
         }
+    }
+
+    private void publish(UUID orderId, PaymentStatus status) {
+        if (status == PaymentStatus.SUCCESS) {
+            publisher.publishCompleted(orderId);
+        } else {
+            publisher.publishFailed(orderId);
+        }
+    }
+
+    /*
+     * Batch variant of processPayment, with the same idempotency guards at
+     * a fixed number of round-trips per batch: one pipelined SET NX for all
+     * Redis claims, one IN query against the ledger, one multi-row insert
+     * and one producer batch for the results. Gateway calls overlap, up to
+     * the gateway client's limit.
+     *
+     * Orders that already have a ledger entry get its result published
+     * again instead of being skipped. Ledger rows are committed before
+     * anything is published, so after a failed send the redelivered batch
+     * finds them and the results still go out. Order-service applies them
+     * compare-and-set, so a repeat changes nothing. To let that redelivery
+     * through, the Redis claims of a batch that fails are released.
+     */
+    public void processPayments(Collection<UUID> orderIds) {
+
+        List<UUID> claimed = claim(new LinkedHashSet<>(orderIds));
 
         try {
-            // Simulate external payment
-            if (Math.random() < 0.7) {
-                repo.save(new PaymentLedger(orderId, PaymentStatus.SUCCESS));
-                publisher.publishCompleted(orderId);
-            } else {
-                throw new RuntimeException("Payment gateway failure");
+            settle(claimed, publisher::publishAll);
+        } catch (RuntimeException ex) {
+            redis.delete(claimed.stream().map(PaymentProcessor::claimKey).toList());
+            throw ex;
+        }
+    }
+
+    /*
+     * processPayments for a listener inside a Kafka transaction, kafka being
+     * that transaction's template. Results are sent in the transaction,
+     * which commits them together with the batch's offsets, or neither.
+     *
+     * A batch then comes back only after an abort, so the Redis claims are
+     * left out. The ledger still catches orders settled by an aborted
+     * attempt and publishes their recorded results again; the PSP's
+     * idempotency key covers charges sent by it.
+     */
+    public void processPaymentsInTransaction(Collection<UUID> orderIds, KafkaTemplate<Object, Object> kafka) {
+        settle(List.copyOf(new LinkedHashSet<>(orderIds)), results -> publisher.publishAll(results, kafka));
+    }
+
+    private void settle(List<UUID> orderIds, Consumer<Map<UUID, PaymentStatus>> publish) {
+        if (orderIds.isEmpty()) {
+            return;
+        }
+
+        Map<UUID, PaymentStatus> results = new LinkedHashMap<>();
+
+        // ---- DB idempotency (hard guarantee)
+        repo.findByOrderIdIn(orderIds)
+                .forEach(entry -> results.put(entry.getOrderId(), entry.getStatus()));
+
+        // All charges in flight at once, as many as the gateway client allows
+        Map<UUID, CompletableFuture<ChargeOutcome>> charges = new LinkedHashMap<>();
+        for (UUID orderId : orderIds) {
+            if (!results.containsKey(orderId)) {
+                charges.put(orderId, gateway.charge(orderId));
             }
+        }
 
-        } catch (Exception ex) {
-            failureService.recordFailure(orderId);
+        List<PaymentLedger> charged = new ArrayList<>();
+        RuntimeException unknown = null;
+        for (Map.Entry<UUID, CompletableFuture<ChargeOutcome>> charge : charges.entrySet()) {
+            try {
+                charged.add(new PaymentLedger(charge.getKey(), statusOf(charge.getValue())));
+            } catch (RuntimeException ex) {
+                if (unknown == null) {
+                    unknown = ex;
+                } else {
+                    unknown.addSuppressed(ex);
+                }
+            }
         }
+
+        // A row that loses the insert race belongs to whoever won, and they publish it
+        Map<UUID, PaymentStatus> status = new LinkedHashMap<>();
+        charged.forEach(entry -> status.put(entry.getOrderId(), entry.getStatus()));
+        for (UUID orderId : writer.insertIfAbsent(charged)) {
+            results.put(orderId, status.get(orderId));
+        }
+
+        // The known outcomes are recorded; the redelivered batch publishes them and asks the PSP again for the rest
+        if (unknown != null) {
+            throw unknown;
+        }
+
+        publish.accept(results);
     }
 
+    // ---- Redis idempotency (fast path), all SET NX in one pipelined round-trip
+    private List<UUID> claim(Collection<UUID> orderIds) {
+        RedisSerializer<String> keys = redis.getStringSerializer();
+        byte[] value = keys.serialize("1");
 
+        List<Object> replies = redis.executePipelined((RedisCallback<Object>) connection -> {
+            for (UUID orderId : orderIds) {
+                connection.stringCommands().set(
+                        keys.serialize(claimKey(orderId)), value,
+                        Expiration.from(CLAIM_TTL), SetOption.SET_IF_ABSENT);
+            }
+            return null;
+        });
+
+        List<UUID> claimed = new ArrayList<>();
+        int i = 0;
+        for (UUID orderId : orderIds) {
+            if (Boolean.TRUE.equals(replies.get(i++))) {
+                claimed.add(orderId);
+            }
+        }
+        return claimed;
+    }
+
+    private static String claimKey(UUID orderId) {
+        return "payment:" + orderId;
+    }
+
+    // Only a decline is a failed payment; a charge that errored or timed out may have gone through, so it throws
+    private static PaymentStatus statusOf(CompletableFuture<ChargeOutcome> charge) {
+        try {
+            return charge.join() == ChargeOutcome.APPROVED ? PaymentStatus.SUCCESS : PaymentStatus.FAILED;
+        } catch (CompletionException ex) {
+            throw ex.getCause() instanceof RuntimeException cause ? cause : ex;
+        }
+    }
 }
@@ -0,0 +1,152 @@
+package org.aadi.payment_service.consumer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class KeyOrderedExecutorTest {
+
+    @Test
+    void tasksForOneKeyRunInSubmissionOrder() throws Exception {
+        Map<Integer, List<Integer>> ran = new ConcurrentHashMap<>();
+
+        try (KeyOrderedExecutor executor = new KeyOrderedExecutor("test-", 64)) {
+            for (int i = 0; i < 500; i++) {
+                int key = i % 5;
+                int seq = i;
+                executor.submit(key, () -> {
+                    // Uneven durations, so tasks would overtake each other if allowed to
+                    if (seq % 7 == 0) {
+                        sleep(1);
+                    }
+                    ran.computeIfAbsent(key, k -> Collections.synchronizedList(new ArrayList<>())).add(seq);
+                });
+            }
+            awaitIdle(executor);
+        }
+
+        assertThat(ran).hasSize(5);
+        ran.forEach((key, seqs) -> assertThat(seqs).hasSize(100).isSorted());
+    }
+
+    @Test
+    void tasksForOneKeyNeverOverlap() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        AtomicInteger otherKeys = new AtomicInteger();
+
+        try (KeyOrderedExecutor executor = new KeyOrderedExecutor("test-", 64)) {
+            for (int i = 0; i < 200; i++) {
+                executor.submit("same", () -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    sleep(1);
+                    running.decrementAndGet();
+                });
+                executor.submit("other-" + i, otherKeys::incrementAndGet);
+            }
+            awaitIdle(executor);
+        }
+
+        assertThat(maxRunning).hasValue(1);
+        assertThat(otherKeys).hasValue(200);
+    }
+
+    @Test
+    void slowKeyDoesNotBlockOtherKeys() throws Exception {
+        CountDownLatch slowRelease = new CountDownLatch(1);
+        CountDownLatch fastDone = new CountDownLatch(10);
+        AtomicBoolean behindSlowRan = new AtomicBoolean();
+
+        try (KeyOrderedExecutor executor = new KeyOrderedExecutor("test-", 64)) {
+            executor.submit("slow", () -> await(slowRelease));
+            executor.submit("slow", () -> behindSlowRan.set(true));
+            for (int i = 0; i < 10; i++) {
+                executor.submit("fast-" + i, fastDone::countDown);
+            }
+
+            assertThat(fastDone.await(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(behindSlowRan).isFalse();
+
+            slowRelease.countDown();
+            awaitIdle(executor);
+            assertThat(behindSlowRan).isTrue();
+        }
+    }
+
+    @Test
+    void submitBlocksOnceMaxInFlightIsReached() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+
+        try (KeyOrderedExecutor executor = new KeyOrderedExecutor("test-", 2)) {
+            executor.submit("a", () -> await(release));
+            executor.submit("b", () -> await(release));
+            assertThat(executor.inFlight()).isEqualTo(2);
+
+            CompletableFuture<Void> third = CompletableFuture.runAsync(() -> {
+                try {
+                    executor.submit("c", () -> { });
+                } catch (InterruptedException ex) {
+                    throw new IllegalStateException(ex);
+                }
+            });
+
+            Thread.sleep(200);
+            assertThat(third).isNotDone();
+
+            release.countDown();
+            third.get(5, TimeUnit.SECONDS);
+            awaitIdle(executor);
+        }
+    }
+
+    @Test
+    void taskThatThrowsLetsTheNextForItsKeyRun() throws Exception {
+        CountDownLatch next = new CountDownLatch(1);
+
+        try (KeyOrderedExecutor executor = new KeyOrderedExecutor("test-", 64)) {
+            executor.submit("key", () -> {
+                throw new IllegalStateException("boom");
+            });
+            executor.submit("key", next::countDown);
+
+            assertThat(next.await(5, TimeUnit.SECONDS)).isTrue();
+            awaitIdle(executor);
+        }
+    }
+
+    // Every permit is back once each task has ended and its key's entry is gone
+    private static void awaitIdle(KeyOrderedExecutor executor) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (executor.inFlight() > 0) {
+            assertThat(System.nanoTime() - deadline).as("tasks still in flight").isNegative();
+            Thread.sleep(5);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
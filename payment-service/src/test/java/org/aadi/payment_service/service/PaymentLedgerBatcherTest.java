@@ -0,0 +1,203 @@
+package org.aadi.payment_service.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.aadi.payment_service.domain.PaymentLedger;
+import org.aadi.payment_service.domain.PaymentStatus;
+import org.aadi.payment_service.repo.PaymentLedgerWriter;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PaymentLedgerBatcherTest {
+
+    @Test
+    void loneRowIsWrittenAtOnce() throws Exception {
+        FakeWriter writer = new FakeWriter();
+
+        try (PaymentLedgerBatcher batcher = batcher(writer)) {
+            assertThat(batcher.append(row()).get(1, TimeUnit.SECONDS)).isTrue();
+        }
+        assertThat(writer.groups).hasSize(1);
+    }
+
+    @Test
+    void rowsQueuedDuringAFlushShareTheNextGroup() throws Exception {
+        FakeWriter writer = new FakeWriter();
+
+        try (PaymentLedgerBatcher batcher = batcher(writer)) {
+            CompletableFuture<Boolean> first = writer.holdNextFlush(batcher, row());
+
+            List<CompletableFuture<Boolean>> queued = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                queued.add(batcher.append(row()));
+            }
+            writer.release();
+
+            assertThat(first.get(1, TimeUnit.SECONDS)).isTrue();
+            for (CompletableFuture<Boolean> durable : queued) {
+                assertThat(durable.get(1, TimeUnit.SECONDS)).isTrue();
+            }
+        }
+        assertThat(writer.groups).extracting(List::size).containsExactly(1, 10);
+    }
+
+    @Test
+    void repeatedOrderIdWithinOneGroupCompletesFalse() throws Exception {
+        FakeWriter writer = new FakeWriter();
+        UUID orderId = UUID.randomUUID();
+
+        try (PaymentLedgerBatcher batcher = batcher(writer)) {
+            writer.holdNextFlush(batcher, row());
+
+            CompletableFuture<Boolean> winner = batcher.append(new PaymentLedger(orderId, PaymentStatus.SUCCESS));
+            CompletableFuture<Boolean> repeat = batcher.append(new PaymentLedger(orderId, PaymentStatus.FAILED));
+            CompletableFuture<Boolean> other = batcher.append(row());
+            writer.release();
+
+            assertThat(winner.get(1, TimeUnit.SECONDS)).isTrue();
+            assertThat(repeat.get(1, TimeUnit.SECONDS)).isFalse();
+            assertThat(other.get(1, TimeUnit.SECONDS)).isTrue();
+        }
+
+        // Only the first row for the order reached the insert
+        assertThat(writer.groups.get(1)).extracting(PaymentLedger::getOrderId).containsOnlyOnce(orderId);
+        assertThat(writer.groups.get(1)).extracting(PaymentLedger::getStatus).doesNotContain(PaymentStatus.FAILED);
+    }
+
+    @Test
+    void orderAlreadyInTheLedgerCompletesFalse() throws Exception {
+        FakeWriter writer = new FakeWriter();
+        PaymentLedger existing = row();
+        writer.table.add(existing.getOrderId());
+
+        try (PaymentLedgerBatcher batcher = batcher(writer)) {
+            assertThat(batcher.append(new PaymentLedger(existing.getOrderId(), PaymentStatus.SUCCESS))
+                    .get(1, TimeUnit.SECONDS)).isFalse();
+        }
+    }
+
+    @Test
+    void failedFlushFailsEveryFutureInTheGroup() throws Exception {
+        FakeWriter writer = new FakeWriter();
+        UUID orderId = UUID.randomUUID();
+
+        try (PaymentLedgerBatcher batcher = batcher(writer)) {
+            writer.holdNextFlush(batcher, row());
+
+            writer.failNext = true;
+            List<CompletableFuture<Boolean>> group = List.of(
+                    batcher.append(row()),
+                    batcher.append(new PaymentLedger(orderId, PaymentStatus.SUCCESS)),
+                    // The repeat fails too, rather than reporting false as if the other had been written
+                    batcher.append(new PaymentLedger(orderId, PaymentStatus.SUCCESS)));
+            writer.release();
+
+            for (CompletableFuture<Boolean> durable : group) {
+                assertThat(durable).failsWithin(1, TimeUnit.SECONDS)
+                        .withThrowableOfType(ExecutionException.class)
+                        .withMessageContaining("connection reset");
+            }
+
+            // The flusher carries on with the next group
+            assertThat(batcher.append(row()).get(1, TimeUnit.SECONDS)).isTrue();
+        }
+    }
+
+    @Test
+    void appendRacingCloseNeverLeavesAFutureIncomplete() throws Exception {
+        for (int round = 0; round < 1000; round++) {
+            PaymentLedgerBatcher batcher = batcher(new FakeWriter());
+            List<CompletableFuture<Boolean>> futures = new CopyOnWriteArrayList<>();
+            CountDownLatch started = new CountDownLatch(4);
+
+            List<Thread> appenders = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                appenders.add(Thread.ofPlatform().start(() -> {
+                    started.countDown();
+                    for (int i = 0; i < 200; i++) {
+                        futures.add(batcher.append(row()));
+                    }
+                }));
+            }
+
+            started.await();
+            batcher.close();
+            for (Thread appender : appenders) {
+                appender.join();
+            }
+
+            assertThat(futures).hasSize(800).allMatch(CompletableFuture::isDone);
+        }
+    }
+
+    private static PaymentLedgerBatcher batcher(PaymentLedgerWriter writer) {
+        return new PaymentLedgerBatcher(writer, new SimpleMeterRegistry(), 500);
+    }
+
+    private static PaymentLedger row() {
+        return new PaymentLedger(UUID.randomUUID(), PaymentStatus.SUCCESS);
+    }
+
+    // Stands in for the table: a set of order ids, with a flush that can be held open or made to fail
+    private static final class FakeWriter extends PaymentLedgerWriter {
+
+        final Set<UUID> table = ConcurrentHashMap.newKeySet();
+        final List<List<PaymentLedger>> groups = new CopyOnWriteArrayList<>();
+        volatile boolean failNext;
+
+        private volatile CountDownLatch entered = new CountDownLatch(0);
+        private volatile CountDownLatch gate = new CountDownLatch(0);
+
+        FakeWriter() {
+            super(null);
+        }
+
+        // Appends row and waits until its flush is under way and held; rows appended meanwhile queue up
+        CompletableFuture<Boolean> holdNextFlush(PaymentLedgerBatcher batcher, PaymentLedger row) throws InterruptedException {
+            entered = new CountDownLatch(1);
+            gate = new CountDownLatch(1);
+            CompletableFuture<Boolean> durable = batcher.append(row);
+            assertThat(entered.await(1, TimeUnit.SECONDS)).isTrue();
+            return durable;
+        }
+
+        void release() {
+            gate.countDown();
+        }
+
+        @Override
+        public List<UUID> insertIfAbsent(List<PaymentLedger> rows) {
+            entered.countDown();
+            try {
+                gate.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+
+            groups.add(List.copyOf(rows));
+            if (failNext && groups.size() > 1) {
+                failNext = false;
+                throw new IllegalStateException("connection reset");
+            }
+
+            List<UUID> inserted = new ArrayList<>();
+            for (PaymentLedger row : rows) {
+                if (table.add(row.getOrderId())) {
+                    inserted.add(row.getOrderId());
+                }
+            }
+            return inserted;
+        }
+    }
+}
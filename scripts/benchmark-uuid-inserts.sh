@@ -0,0 +1,103 @@
+#!/usr/bin/env bash
+#
+# Insert throughput of random (v4) vs time-ordered (v7) UUID primary keys.
+#
+# Loads ROWS rows into one table per key type, committing every BATCH
+# rows as the services do, and reports rows/sec, WAL written, primary key
+# index size and average leaf density (when pgstattuple is available).
+# The gap grows once the index no longer fits in shared_buffers, so use
+# enough ROWS for that on the target database.
+#
+# Runs against the compose Postgres by default; point PSQL elsewhere to
+# use another server:
+#
+#   ROWS=5000000 ./scripts/benchmark-uuid-inserts.sh
+#   PSQL="psql -h localhost -U postgres -d microservices" ./scripts/benchmark-uuid-inserts.sh
+#
+set -euo pipefail
+
+ROWS=${ROWS:-2000000}
+BATCH=${BATCH:-500}
+PSQL=${PSQL:-docker compose exec -T postgres psql -U postgres -d microservices}
+
+$PSQL -v ON_ERROR_STOP=1 -v rows="$ROWS" -v batch="$BATCH" <<'SQL'
+\pset footer off
+
+-- v7 in SQL (Postgres < 18 has no uuidv7()): 48-bit millis, then version 7 and a 12-bit
+-- counter in place of the v4's random bits, as UuidV7 lays them out.
+CREATE SEQUENCE IF NOT EXISTS bench_uuid_v7_seq;
+
+CREATE OR REPLACE FUNCTION bench_uuid_v7() RETURNS uuid AS $$
+    SELECT encode(
+        overlay(
+            overlay(uuid_send(gen_random_uuid())
+                    PLACING substring(int8send((extract(epoch FROM clock_timestamp()) * 1000)::bigint) FROM 3)
+                    FROM 1 FOR 6)
+            PLACING int2send((28672 | (nextval('bench_uuid_v7_seq') & 4095))::smallint)
+            FROM 7 FOR 2),
+        'hex')::uuid
+$$ LANGUAGE sql VOLATILE;
+
+DROP TABLE IF EXISTS bench_uuid_v4, bench_uuid_v7, bench_uuid_results;
+
+CREATE TABLE bench_uuid_v4 (id uuid PRIMARY KEY, created_at timestamptz NOT NULL DEFAULT now(), payload text NOT NULL);
+CREATE TABLE bench_uuid_v7 (LIKE bench_uuid_v4 INCLUDING ALL);
+
+CREATE TABLE bench_uuid_results (
+    keys            text,
+    rows            bigint,
+    seconds         numeric,
+    rows_per_sec    bigint,
+    wal_mb          numeric,
+    index_mb        numeric,
+    leaf_density    numeric
+);
+
+CREATE OR REPLACE PROCEDURE bench_uuid_insert(keys text, total int, batch int) LANGUAGE plpgsql AS $$
+DECLARE
+    target    text := 'bench_uuid_' || keys;
+    generator text := CASE keys WHEN 'v4' THEN 'gen_random_uuid()' ELSE 'bench_uuid_v7()' END;
+    started   timestamptz := clock_timestamp();
+    wal_start pg_lsn := pg_current_wal_insert_lsn();
+    inserted  int := 0;
+    secs      numeric;
+    density   numeric;
+BEGIN
+    WHILE inserted < total LOOP
+        EXECUTE format('INSERT INTO %I (id, payload) SELECT %s, repeat(''x'', 64) FROM generate_series(1, %s)',
+                       target, generator, batch);
+        inserted := inserted + batch;
+        COMMIT;
+    END LOOP;
+
+    secs := extract(epoch FROM clock_timestamp() - started);
+
+    BEGIN
+        CREATE EXTENSION IF NOT EXISTS pgstattuple;
+        EXECUTE format('SELECT avg_leaf_density FROM pgstatindex(%L)', target || '_pkey') INTO density;
+    EXCEPTION WHEN OTHERS THEN
+        density := NULL;
+    END;
+
+    INSERT INTO bench_uuid_results VALUES (
+        keys,
+        inserted,
+        round(secs, 1),
+        round(inserted / secs),
+        round(pg_wal_lsn_diff(pg_current_wal_insert_lsn(), wal_start) / 1048576.0),
+        round(pg_relation_size(target || '_pkey') / 1048576.0),
+        density);
+END $$;
+
+CHECKPOINT;
+CALL bench_uuid_insert('v4', :rows, :batch);
+CHECKPOINT;
+CALL bench_uuid_insert('v7', :rows, :batch);
+
+SELECT * FROM bench_uuid_results ORDER BY keys;
+
+DROP TABLE bench_uuid_v4, bench_uuid_v7, bench_uuid_results;
+DROP PROCEDURE bench_uuid_insert(text, int, int);
+DROP FUNCTION bench_uuid_v7();
+DROP SEQUENCE bench_uuid_v7_seq;
+SQL
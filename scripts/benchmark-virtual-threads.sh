@@ -0,0 +1,89 @@
+#!/usr/bin/env bash
+#
+# A/B load test of platform vs virtual threads for the servlet services.
+#
+# For each mode the services are recreated with SPRING_THREADS_VIRTUAL_ENABLED
+# set accordingly and a JFR recording running, then hammered with `hey`.
+# Per mode it prints the hey summary, the pinned-thread metric and the
+# jdk.VirtualThreadPinned events captured by JFR.
+#
+# Requires: docker compose, hey (https://github.com/rakyll/hey), curl, jq,
+# and a JDK on the host for `jfr`. The stack must already be set up
+# (Keycloak realm + a user, see KEYCLOAK_SETUP.md).
+#
+#   USERNAME=santosh@yopmail.com PASSWORD='Password#123' ./scripts/benchmark-virtual-threads.sh
+#
+set -euo pipefail
+
+USERNAME=${USERNAME:?set USERNAME}
+PASSWORD=${PASSWORD:?set PASSWORD}
+DURATION=${DURATION:-60s}
+CONCURRENCY=${CONCURRENCY:-400}
+OUT=${OUT:-bench-virtual-threads}
+
+SERVICES="order-service payment-service notification-service auth-microservice dlt-replay-service"
+
+# endpoint per service: "<service> <method> <url>"
+TARGETS=(
+  "order-service GET http://localhost:8097/api/orders/history?size=20"
+  "auth-microservice POST http://localhost:8096/auth/login"
+)
+
+mkdir -p "$OUT"
+
+wait_up() {
+  local url=$1
+  for _ in $(seq 1 90); do
+    curl -fs -o /dev/null "$url" && return 0
+    sleep 2
+  done
+  echo "timed out waiting for $url" >&2
+  return 1
+}
+
+token() {
+  curl -fs -X POST http://localhost:8096/auth/login \
+    -H 'Content-Type: application/json' \
+    -d "{\"username\":\"$USERNAME\",\"password\":\"$PASSWORD\"}" | jq -r .access_token
+}
+
+for mode in false true; do
+  echo "=== spring.threads.virtual.enabled=$mode"
+
+  VIRTUAL_THREADS=$mode \
+  JFR_OPTS="-XX:StartFlightRecording=filename=/tmp/app.jfr,settings=profile,dumponexit=true" \
+    docker compose up -d --force-recreate $SERVICES
+
+  wait_up http://localhost:8096/auth/health
+  TOKEN=$(token)
+  sleep 10
+
+  for target in "${TARGETS[@]}"; do
+    read -r svc method url <<<"$target"
+    echo "--- $svc $method $url"
+
+    if [ "$method" = POST ]; then
+      hey -z "$DURATION" -c "$CONCURRENCY" -m POST -T application/json \
+        -d "{\"username\":\"$USERNAME\",\"password\":\"$PASSWORD\"}" "$url" \
+        | tee "$OUT/$svc-virtual-$mode.txt" | sed -n '/Summary/,/Latency distribution/p'
+    else
+      hey -z "$DURATION" -c "$CONCURRENCY" -H "Authorization: Bearer $TOKEN" "$url" \
+        | tee "$OUT/$svc-virtual-$mode.txt" | sed -n '/Summary/,/Latency distribution/p'
+    fi
+  done
+
+  echo "--- jvm.threads.virtual.pinned (order-service)"
+  curl -fs -H "Authorization: Bearer $TOKEN" \
+    http://localhost:8097/actuator/metrics/jvm.threads.virtual.pinned | jq -c .measurements || true
+
+  # Stop so dumponexit writes the recordings, then pull them out
+  docker compose stop $SERVICES
+  for svc in $SERVICES; do
+    docker cp "$svc:/tmp/app.jfr" "$OUT/$svc-virtual-$mode.jfr" 2>/dev/null || continue
+    pinned=$(jfr summary "$OUT/$svc-virtual-$mode.jfr" | awk '$1=="jdk.VirtualThreadPinned" {print $2}')
+    echo "$svc: ${pinned:-0} jdk.VirtualThreadPinned events"
+  done
+done
+
+echo
+echo "Inspect pinning stacks with: jfr print --events jdk.VirtualThreadPinned $OUT/<service>-virtual-true.jfr"